@@ -0,0 +1,73 @@
+package com.petbooking.allocation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation cost for a large exam: 100 departments x 3 categories spread over 60 days.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Djmh.args="SlotAllocatorBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SlotAllocatorBenchmark {
+
+    @Param({ "greedy", "even" })
+    public String strategy;
+
+    @Param({ "100" })
+    public int departments;
+
+    @Param({ "60" })
+    public int days;
+
+    private SlotAllocator allocator;
+    private AllocationRequest request;
+
+    @Setup
+    public void setup() {
+        allocator = "greedy".equals(strategy) ? new GreedyBalancedAllocator() : new EvenSpreadAllocator();
+
+        // Uneven department sizes, fixed seed so runs are comparable
+        Random random = new Random(42);
+        List<AllocationRequest.Demand> demands = new ArrayList<>();
+        long total = 0;
+        for (int d = 0; d < departments; d++) {
+            for (int cat = 1; cat <= 3; cat++) {
+                int count = 20 + random.nextInt(400);
+                demands.add(new AllocationRequest.Demand("DEPT" + d + "|" + cat, count));
+                total += count;
+            }
+        }
+        int systemsPerSession = (int) ((total + days * 2L - 1) / (days * 2L));
+        request = new AllocationRequest(days, systemsPerSession, 2, 0, demands);
+    }
+
+    @Benchmark
+    public AllocationPlan allocate() {
+        return allocator.allocate(request);
+    }
+
+    /**
+     * Spread between the busiest and quietest day for the plan (reported once per setup).
+     */
+    @TearDown
+    public void reportBalance() {
+        int[] loads = allocator.allocate(request).dayLoads();
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int load : loads) {
+            min = Math.min(min, load);
+            max = Math.max(max, load);
+        }
+        System.out.println(strategy + ": day load min=" + min + " max=" + max
+                + " capacity=" + request.dailyCapacity());
+    }
+}
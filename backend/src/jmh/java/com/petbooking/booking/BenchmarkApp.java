@@ -0,0 +1,143 @@
+package com.petbooking.booking;
+
+import com.petbooking.PetBookingApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the full application on an in-memory H2 database in PostgreSQL mode (or on the
+ * database named by SPRING_DATASOURCE_URL/_USERNAME/_PASSWORD when set; forked benchmark
+ * JVMs inherit the environment) and seeds booking fixtures with plain JDBC. Every department gets one DAY exam quota, one DAY
+ * exam slot and one legacy dept_quota on a shared legacy slot, each sized to the number
+ * of students seeded for that department.
+ */
+public class BenchmarkApp {
+
+    private final ConfigurableApplicationContext context;
+    private final JdbcTemplate jdbc;
+
+    public final long[] deptIds;
+    public final long[] examQuotaIds;
+    public final int[] examSlotIds;
+    public final long legacySlotId;
+    public final int studentsPerDept;
+
+    public BenchmarkApp(int departments, int studentsPerDept, String... extraArgs) {
+        List<String> args = new ArrayList<>();
+        if (System.getenv("SPRING_DATASOURCE_URL") == null) {
+            args.addAll(List.of(
+                    "--spring.datasource.url=jdbc:h2:mem:bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                            + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"));
+        }
+        args.addAll(List.of(
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.datasource.hikari.maximum-pool-size=16",
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--logging.level.com.petbooking=WARN",
+                "--spring.main.banner-mode=off"));
+        args.addAll(List.of(extraArgs));
+
+        this.context = SpringApplication.run(PetBookingApplication.class, args.toArray(new String[0]));
+        this.jdbc = context.getBean(JdbcTemplate.class);
+        this.studentsPerDept = studentsPerDept;
+
+        this.deptIds = new long[departments];
+        this.examQuotaIds = new long[departments];
+        this.examSlotIds = new int[departments];
+
+        LocalDate today = LocalDate.now();
+        jdbc.update("INSERT INTO exams (exam_name, no_of_days, starting_date, ending_date, created_at) "
+                + "VALUES ('BENCH', 1, ?, ?, ?)", Date.valueOf(today), Date.valueOf(today.plusDays(30)), now());
+        long examId = jdbc.queryForObject("SELECT MAX(exam_id) FROM exams", Long.class);
+
+        jdbc.update("INSERT INTO exam_days (exam_date, day_number) VALUES (?, 1)", Date.valueOf(today));
+        int examDayId = jdbc.queryForObject("SELECT MAX(id) FROM exam_days", Integer.class);
+
+        jdbc.update("INSERT INTO slots (exam_date, start_time, end_time, category, booking_open, created_at) "
+                + "VALUES (1, ?, ?, 'DAY', true, ?)", Time.valueOf("09:00:00"), Time.valueOf("17:00:00"), now());
+        this.legacySlotId = jdbc.queryForObject("SELECT MAX(slot_id) FROM slots", Long.class);
+
+        for (int d = 0; d < departments; d++) {
+            String deptCode = deptCode(d);
+            jdbc.update("INSERT INTO departments (dept_code) VALUES (?)", deptCode);
+            deptIds[d] = jdbc.queryForObject("SELECT dept_id FROM departments WHERE dept_code = ?", Long.class,
+                    deptCode);
+
+            jdbc.update("INSERT INTO exam_quotas (exam_id, dept_id, category_type, max_count, current_fill, is_closed) "
+                    + "VALUES (?, ?, 1, ?, 0, false)", examId, deptIds[d], studentsPerDept);
+            examQuotaIds[d] = jdbc.queryForObject("SELECT MAX(id) FROM exam_quotas", Long.class);
+
+            jdbc.update("INSERT INTO exam_slots (exam_day_id, session, department, student_type, gender, "
+                    + "max_capacity, booked_count) VALUES (?, 'DAY', ?, 'DAY', 'ANY', ?, 0)",
+                    examDayId, deptCode, studentsPerDept);
+            examSlotIds[d] = jdbc.queryForObject("SELECT MAX(id) FROM exam_slots", Integer.class);
+
+            jdbc.update("INSERT INTO dept_quota (slot_id, dept_id, quota_capacity, booked_count, created_at) "
+                    + "VALUES (?, ?, ?, 0, ?)", legacySlotId, deptIds[d], studentsPerDept, now());
+
+            long deptId = deptIds[d];
+            List<Integer> indexes = new ArrayList<>(studentsPerDept);
+            for (int i = 0; i < studentsPerDept; i++) {
+                indexes.add(i);
+            }
+            int dept = d;
+            jdbc.batchUpdate("INSERT INTO students (roll_no, name, email, dept_id, category, created_at) "
+                    + "VALUES (?, ?, ?, ?, 'DAY', ?)", indexes, 5000, (ps, i) -> {
+                        ps.setString(1, rollNo(dept, i));
+                        ps.setString(2, "Bench " + i);
+                        ps.setString(3, rollNo(dept, i) + "@bench.local");
+                        ps.setLong(4, deptId);
+                        ps.setTimestamp(5, now());
+                    });
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public JdbcTemplate jdbc() {
+        return jdbc;
+    }
+
+    /**
+     * Drop all bookings and zero every counter so the seeded students can book again.
+     */
+    public void resetBookings() {
+        jdbc.update("DELETE FROM bookings");
+        jdbc.update("UPDATE exam_quotas SET current_fill = 0");
+        jdbc.update("UPDATE exam_slots SET booked_count = 0");
+        jdbc.update("UPDATE dept_quota SET booked_count = 0");
+    }
+
+    public void close() {
+        context.close();
+    }
+
+    public static String deptCode(int d) {
+        return "B" + d;
+    }
+
+    public static String rollNo(int dept, int i) {
+        return "B" + dept + "-" + i;
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,108 @@
+package com.petbooking.booking;
+
+import com.petbooking.service.BookingService;
+import com.petbooking.service.QuotaAdmissionGate;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Booking hot path under contention, against the full Spring context on H2 (PostgreSQL mode).
+ *
+ * strategy:
+ *   examQuota  - BookingService.bookExamQuota (admission gate + conditional UPDATE on exam_quotas)
+ *   examSlot   - BookingService.bookExamSlot (conditional UPDATE on exam_slots)
+ *   legacySlot - BookingService.bookSlot (unlocked fast reject + conditional UPDATE on dept_quota)
+ * target:
+ *   same     - every thread books into department 0's quota
+ *   disjoint - thread t books into department t's quota
+ *
+ * Every operation books a fresh student; bookings are wiped between iterations. Reports
+ * throughput and the SampleTime latency distribution (p0.99 etc.).
+ *
+ * Run with, e.g.:
+ *   mvn -Pbenchmark test-compile exec:exec -Djmh.args="BookingBenchmark -t 8"
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 4, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class BookingBenchmark {
+
+    @Param({ "examQuota", "examSlot", "legacySlot" })
+    public String strategy;
+
+    @Param({ "same", "disjoint" })
+    public String target;
+
+    // Must cover one iteration's bookings per department
+    @Param({ "10000" })
+    public int studentsPerDept;
+
+    // Upper bound on -t for the disjoint target
+    private static final int DEPARTMENTS = 16;
+
+    private BenchmarkApp app;
+    private BookingService bookingService;
+    private QuotaAdmissionGate admissionGate;
+    private AtomicInteger[] nextStudent;
+
+    @Setup(Level.Trial)
+    public void startApp() {
+        app = new BenchmarkApp(DEPARTMENTS, studentsPerDept);
+        bookingService = app.bean(BookingService.class);
+        admissionGate = app.bean(QuotaAdmissionGate.class);
+        nextStudent = new AtomicInteger[DEPARTMENTS];
+        for (int d = 0; d < DEPARTMENTS; d++) {
+            nextStudent[d] = new AtomicInteger();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetBookings() {
+        app.resetBookings();
+        admissionGate.invalidateAll();
+        for (AtomicInteger counter : nextStudent) {
+            counter.set(0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApp() {
+        app.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Booker {
+        int dept;
+
+        @Setup(Level.Trial)
+        public void pickDepartment(BookingBenchmark bench, ThreadParams threads) {
+            if (threads.getThreadCount() > DEPARTMENTS) {
+                throw new IllegalStateException("At most " + DEPARTMENTS + " threads are supported");
+            }
+            dept = "same".equals(bench.target) ? 0 : threads.getThreadIndex();
+        }
+    }
+
+    @Benchmark
+    public Object book(Booker booker) {
+        int student = nextStudent[booker.dept].getAndIncrement();
+        if (student >= studentsPerDept) {
+            throw new IllegalStateException("Ran out of seeded students; raise studentsPerDept");
+        }
+        String rollNo = BenchmarkApp.rollNo(booker.dept, student);
+
+        return switch (strategy) {
+            case "examQuota" -> bookingService.bookExamQuota(rollNo, app.examQuotaIds[booker.dept]);
+            case "examSlot" -> bookingService.bookExamSlot(rollNo, app.examSlotIds[booker.dept]);
+            case "legacySlot" -> bookingService.bookSlot(rollNo, app.legacySlotId);
+            default -> throw new IllegalArgumentException(strategy);
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.petbooking.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request in JwtRequestFilter.
+ *   fourParses   - the old path: extractUsername, extractRole and validateToken (twice), each
+ *                  rebuilding the key and parser
+ *   verify       - JwtUtils.verify with cacheEntries=0 (one parse) or the claims cache enabled
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Djmh.args="JwtVerifyBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerifyBenchmark {
+
+    private static final String SECRET = "verysecretkeythatshouldbechangedinproduction1234567890";
+
+    @Param({ "0", "10000" })
+    public int cacheEntries;
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "EXPIRATION_TIME", 86_400_000L);
+        ReflectionTestUtils.setField(jwtUtils, "claimsCacheMaxEntries", cacheEntries);
+        ReflectionTestUtils.setField(jwtUtils, "claimsCacheTtlSeconds", 300L);
+        jwtUtils.init();
+        token = jwtUtils.generateToken("21CS001", "STUDENT");
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return jwtUtils.verify(token);
+    }
+
+    @Benchmark
+    public Object fourParses() {
+        Object last = null;
+        for (int i = 0; i < 4; i++) {
+            last = Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build()
+                    .parseClaimsJws(token).getBody();
+        }
+        return last;
+    }
+}
@@ -0,0 +1,386 @@
+package com.petbooking.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.petbooking.PetBookingApplication;
+import com.petbooking.service.QuotaStripeService;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Flash-crowd load test for the student booking path, entirely on localhost.
+ *
+ * Boots the application in-process (in-memory H2 in PostgreSQL mode unless spring.datasource.*
+ * args say otherwise), seeds students and quotas via LoadTestSeeder, then releases
+ * {@code concurrency} clients at once. Each client takes the next student, calls
+ * GET /api/student/slots and books the first offered quota with POST /api/student/book,
+ * until every student has had one attempt. Clients are closed-loop, so latencies are
+ * service times at saturation.
+ *
+ * Options (--name=value; anything else is passed to Spring):
+ *   students, departments, concurrency, hostel-ratio, quota-ratio (seats per student),
+ *   days, warmup (untimed GET /slots requests), seed, report-dir
+ *
+ * The report and one .hgrm percentile file per endpoint are written to report-dir.
+ * The same seed and options always produce the same roster, quotas and arrival order.
+ */
+public class BookingLoadTest {
+
+    record Options(int students, int departments, int concurrency, double hostelRatio, double quotaRatio,
+            int days, int warmup, long seed, Path reportDir, String[] springArgs) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            List<String> springArgs = new ArrayList<>(List.of(
+                    "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                            + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                    "--spring.jpa.hibernate.ddl-auto=create-drop",
+                    "--spring.jpa.show-sql=false",
+                    "--server.port=0",
+                    "--logging.level.root=WARN",
+                    "--logging.level.com.petbooking=WARN",
+                    "--logging.level.org.springframework.web=WARN",
+                    "--spring.main.banner-mode=off"));
+            Set<String> known = Set.of("students", "departments", "concurrency", "hostel-ratio", "quota-ratio",
+                    "days", "warmup", "seed", "report-dir");
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                String name = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+                if (name != null && known.contains(name)) {
+                    values.put(name, arg.substring(eq + 1));
+                } else {
+                    // Spring joins repeated options with commas, so drop the H2 default being overridden
+                    String key = eq > 0 ? arg.substring(0, eq + 1) : arg;
+                    springArgs.removeIf(existing -> existing.startsWith(key));
+                    springArgs.add(arg);
+                }
+            }
+
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            return new Options(
+                    Integer.parseInt(values.getOrDefault("students", "20000")),
+                    Integer.parseInt(values.getOrDefault("departments", "8")),
+                    Integer.parseInt(values.getOrDefault("concurrency", "64")),
+                    Double.parseDouble(values.getOrDefault("hostel-ratio", "0.3")),
+                    Double.parseDouble(values.getOrDefault("quota-ratio", "1.0")),
+                    Integer.parseInt(values.getOrDefault("days", "5")),
+                    Integer.parseInt(values.getOrDefault("warmup", "2000")),
+                    Long.parseLong(values.getOrDefault("seed", "42")),
+                    Path.of(values.getOrDefault("report-dir", "target/loadtest/" + stamp)),
+                    springArgs.toArray(new String[0]));
+        }
+    }
+
+    enum Outcome {
+        BOOKED, // 200 from /book
+        FULL, // 400, quota filled up between /slots and /book
+        NO_SLOTS, // /slots offered nothing, /book not called
+        REJECTED, // any other 400
+        SHED, // 503 from the DB concurrency limiter
+        ERROR // anything else, including transport errors
+    }
+
+    // 1 minute ceiling, 3 significant digits; recorded in nanoseconds
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Options options;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLongArray outcomes = new AtomicLongArray(Outcome.values().length);
+    private String baseUrl;
+
+    BookingLoadTest(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ConfigurableApplicationContext context = SpringApplication.run(PetBookingApplication.class,
+                options.springArgs());
+        boolean consistent;
+        try {
+            consistent = new BookingLoadTest(options).run(context);
+        } finally {
+            context.close();
+        }
+        // Executors owned by the app are not all daemon threads
+        System.exit(consistent ? 0 : 1);
+    }
+
+    boolean run(ConfigurableApplicationContext context) throws Exception {
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+        System.out.println("Seeding " + options.students() + " students...");
+        LoadTestSeeder.Seeded seeded = new LoadTestSeeder(context, options).seed();
+
+        // Arrival order is shuffled with the seed so departments interleave reproducibly
+        int[] order = new int[options.students()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(options.seed());
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+
+        System.out.println("Warming up with " + options.warmup() + " slot reads...");
+        warmUp(seeded.tokens());
+
+        System.out.println("Releasing " + options.concurrency() + " clients...");
+        Histogram slotsLatency = new Histogram(MAX_LATENCY_NANOS, 3);
+        Histogram bookLatency = new Histogram(MAX_LATENCY_NANOS, 3);
+        long elapsedNanos = flashCrowd(seeded.tokens(), order, slotsLatency, bookLatency);
+
+        // Striped quotas: bring exam_quotas.current_fill up to date before comparing
+        context.getBean(QuotaStripeService.class).rollUp();
+        Consistency consistency = checkConsistency(context.getBean(JdbcTemplate.class), seeded.examId());
+        report(context, seeded, elapsedNanos, slotsLatency, bookLatency, consistency);
+        return consistency.ok();
+    }
+
+    // ========== Load ==========
+
+    private void warmUp(List<String> tokens) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(options.concurrency());
+        AtomicInteger next = new AtomicInteger();
+        for (int t = 0; t < options.concurrency(); t++) {
+            pool.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < options.warmup()) {
+                    try {
+                        send(get("/api/student/slots", tokens.get(i % tokens.size())));
+                    } catch (IOException e) {
+                        // Warm-up only; failures show up again in the measured run
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+    }
+
+    private long flashCrowd(List<String> tokens, int[] order, Histogram slotsLatency, Histogram bookLatency)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(options.concurrency());
+        CountDownLatch ready = new CountDownLatch(options.concurrency());
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<Histogram[]>> clients = new ArrayList<>();
+
+        for (int t = 0; t < options.concurrency(); t++) {
+            clients.add(pool.submit(() -> {
+                // Per-client histograms, merged at the end, keep recording off any shared lock
+                Histogram slots = new Histogram(MAX_LATENCY_NANOS, 3);
+                Histogram book = new Histogram(MAX_LATENCY_NANOS, 3);
+                ready.countDown();
+                go.await();
+                int i;
+                while ((i = next.getAndIncrement()) < order.length) {
+                    attempt(tokens.get(order[i]), slots, book);
+                }
+                return new Histogram[] { slots, book };
+            }));
+        }
+
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Future<Histogram[]> client : clients) {
+            Histogram[] recorded = client.get();
+            slotsLatency.add(recorded[0]);
+            bookLatency.add(recorded[1]);
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return elapsed;
+    }
+
+    private void attempt(String token, Histogram slotsLatency, Histogram bookLatency) {
+        try {
+            long start = System.nanoTime();
+            HttpResponse<String> slots = send(get("/api/student/slots", token));
+            record(slotsLatency, start);
+            if (slots.statusCode() != 200) {
+                count(classify(slots));
+                return;
+            }
+
+            Long quotaId = firstOfferedQuota(slots.body());
+            if (quotaId == null) {
+                count(Outcome.NO_SLOTS);
+                return;
+            }
+
+            start = System.nanoTime();
+            HttpResponse<String> booked = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/student/book"))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"slotId\":" + quotaId + "}"))
+                    .build());
+            record(bookLatency, start);
+            count(classify(booked));
+        } catch (IOException e) {
+            count(Outcome.ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            count(Outcome.ERROR);
+        }
+    }
+
+    private Long firstOfferedQuota(String json) throws IOException {
+        for (JsonNode slot : mapper.readTree(json)) {
+            if (slot.path("available").asInt() > 0) {
+                return slot.path("slotId").asLong();
+            }
+        }
+        return null;
+    }
+
+    private static Outcome classify(HttpResponse<String> response) {
+        return switch (response.statusCode()) {
+            case 200 -> Outcome.BOOKED;
+            case 400 -> response.body().toLowerCase().contains("full") ? Outcome.FULL : Outcome.REJECTED;
+            case 503 -> Outcome.SHED;
+            default -> Outcome.ERROR;
+        };
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void record(Histogram histogram, long startNanos) {
+        histogram.recordValue(Math.min(System.nanoTime() - startNanos, MAX_LATENCY_NANOS));
+    }
+
+    private void count(Outcome outcome) {
+        outcomes.incrementAndGet(outcome.ordinal());
+    }
+
+    private long outcomeCount(Outcome outcome) {
+        return outcomes.get(outcome.ordinal());
+    }
+
+    // ========== Consistency ==========
+
+    record Consistency(long bookings, long filled, long overfilled, long duplicateStudents, long booked) {
+        boolean ok() {
+            return bookings == filled && bookings == booked && overfilled == 0 && duplicateStudents == 0;
+        }
+    }
+
+    private Consistency checkConsistency(JdbcTemplate jdbc, long examId) {
+        String examBookings = "FROM bookings WHERE exam_quota_id IN (SELECT id FROM exam_quotas WHERE exam_id = ?)";
+        long bookings = jdbc.queryForObject("SELECT COUNT(*) " + examBookings, Long.class, examId);
+        long students = jdbc.queryForObject("SELECT COUNT(DISTINCT roll_no) " + examBookings, Long.class, examId);
+        long filled = jdbc.queryForObject(
+                "SELECT COALESCE(SUM(current_fill), 0) FROM exam_quotas WHERE exam_id = ?", Long.class, examId);
+        long overfilled = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM exam_quotas WHERE exam_id = ? AND current_fill > max_count", Long.class, examId);
+        overfilled += jdbc.queryForObject("SELECT COUNT(*) FROM exam_quota_stripes s JOIN exam_quotas q "
+                + "ON q.id = s.quota_id WHERE q.exam_id = ? AND s.current_fill > s.max_count", Long.class, examId);
+        return new Consistency(bookings, filled, overfilled, bookings - students, outcomeCount(Outcome.BOOKED));
+    }
+
+    // ========== Report ==========
+
+    private void report(ConfigurableApplicationContext context, LoadTestSeeder.Seeded seeded, long elapsedNanos,
+            Histogram slotsLatency, Histogram bookLatency, Consistency consistency) throws IOException {
+        Files.createDirectories(options.reportDir());
+        Path reportFile = options.reportDir().resolve("report.txt");
+        double seconds = elapsedNanos / 1e9;
+        long booked = outcomeCount(Outcome.BOOKED);
+        long requests = slotsLatency.getTotalCount() + bookLatency.getTotalCount();
+
+        StringBuilder text = new StringBuilder();
+        text.append("Booking flash-crowd load test, ").append(LocalDateTime.now().withNano(0)).append('\n');
+        text.append(String.format("  students=%d departments=%d concurrency=%d hostel-ratio=%.2f quota-ratio=%.2f "
+                + "days=%d warmup=%d seed=%d%n", options.students(), options.departments(), options.concurrency(),
+                options.hostelRatio(), options.quotaRatio(), options.days(), options.warmup(), options.seed()));
+        text.append(String.format("  database=%s cpus=%d java=%s%n",
+                context.getEnvironment().getProperty("spring.datasource.url"),
+                Runtime.getRuntime().availableProcessors(), System.getProperty("java.version")));
+        LoadTestSeeder.Timings t = seeded.timings();
+        text.append(String.format("  seeding: upload=%d ms register=%d ms exam-init=%d ms tokens=%d ms, quota seats=%d%n%n",
+                t.uploadMs(), t.registerMs(), t.examInitMs(), t.tokensMs(), seeded.quotaSeats()));
+
+        text.append(String.format("Run: %.2f s, %.1f bookings/s, %.1f requests/s%n", seconds, booked / seconds,
+                requests / seconds));
+        StringJoiner outcomeLine = new StringJoiner(" ", "Outcomes: ", "\n\n");
+        for (Outcome outcome : Outcome.values()) {
+            outcomeLine.add(outcome.name().toLowerCase() + "=" + outcomeCount(outcome));
+        }
+        text.append(outcomeLine);
+
+        text.append(String.format("%-22s %9s %9s %9s %9s %9s %9s%n", "Latency (ms)", "count", "p50", "p90", "p99",
+                "p99.9", "max"));
+        text.append(latencyLine("GET  /api/student/slots", slotsLatency));
+        text.append(latencyLine("POST /api/student/book", bookLatency));
+
+        text.append(String.format("%nConsistency: bookings=%d fill=%d booked-responses=%d overfilled-quotas=%d "
+                + "duplicate-students=%d -> %s%n", consistency.bookings(), consistency.filled(), consistency.booked(),
+                consistency.overfilled(), consistency.duplicateStudents(), consistency.ok() ? "OK" : "FAILED"));
+
+        System.out.println();
+        System.out.print(text);
+        Files.writeString(reportFile, text);
+        writePercentiles(options.reportDir().resolve("slots.hgrm"), slotsLatency);
+        writePercentiles(options.reportDir().resolve("book.hgrm"), bookLatency);
+        System.out.println("Report written to " + options.reportDir().toAbsolutePath());
+    }
+
+    private static String latencyLine(String label, Histogram h) {
+        return String.format("%-22s %9d %9.2f %9.2f %9.2f %9.2f %9.2f%n", label, h.getTotalCount(),
+                millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // Full distribution in milliseconds, plottable with HdrHistogram's plotFiles.html
+    private static void writePercentiles(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1e6);
+        }
+    }
+}
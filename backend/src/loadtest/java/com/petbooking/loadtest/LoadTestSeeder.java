@@ -0,0 +1,172 @@
+package com.petbooking.loadtest;
+
+import com.petbooking.config.JwtUtils;
+import com.petbooking.dto.ExamDtos;
+import com.petbooking.dto.StudentUploadResponse;
+import com.petbooking.entity.Admin;
+import com.petbooking.entity.Department;
+import com.petbooking.repository.AdminRepository;
+import com.petbooking.repository.DepartmentRepository;
+import com.petbooking.service.ExamInitService;
+import com.petbooking.service.StudentMasterUploadService;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds a load-test run through the services an admin would use: a generated roster goes
+ * through StudentMasterUploadService and the matching exam and quotas through
+ * ExamInitService. The app registers a student on their first OTP login; here all of them
+ * are registered in one statement with the same category mapping, then given a JWT.
+ */
+class LoadTestSeeder {
+
+    static final String EXAM_NAME = "LOADTEST";
+    private static final String ROLL_PREFIX = "LT";
+
+    record Seeded(long examId, List<String> rollNos, List<String> tokens, int quotaSeats, Timings timings) {
+    }
+
+    record Timings(long uploadMs, long registerMs, long examInitMs, long tokensMs) {
+    }
+
+    private final ConfigurableApplicationContext context;
+    private final BookingLoadTest.Options options;
+
+    LoadTestSeeder(ConfigurableApplicationContext context, BookingLoadTest.Options options) {
+        this.context = context;
+        this.options = options;
+    }
+
+    Seeded seed() throws IOException {
+        Random random = new Random(options.seed());
+        int departments = options.departments();
+
+        // Roster: departments round-robin, category drawn from the seeded random
+        List<String> rollNos = new ArrayList<>(options.students());
+        int[][] counts = new int[departments][3]; // [dept][DAY, HOSTEL_MALE, HOSTEL_FEMALE]
+        Path roster = Files.createTempFile("loadtest-roster-", ".xlsx");
+        long start = System.nanoTime();
+        try {
+            writeRoster(roster, random, rollNos, counts);
+            StudentUploadResponse upload = context.getBean(StudentMasterUploadService.class)
+                    .processExcelFile(roster, adminId());
+            if (upload.getInsertedCount() != options.students()) {
+                throw new IllegalStateException("Roster upload inserted " + upload.getInsertedCount() + " of "
+                        + options.students() + " rows; run against an empty database");
+            }
+        } finally {
+            Files.deleteIfExists(roster);
+        }
+        long uploadMs = millisSince(start);
+
+        start = System.nanoTime();
+        int registered = registerStudents();
+        if (registered != options.students()) {
+            throw new IllegalStateException("Registered " + registered + " of " + options.students() + " students");
+        }
+        long registerMs = millisSince(start);
+
+        // One exam, one quota per department and category sized by quotaRatio
+        start = System.nanoTime();
+        DepartmentRepository departmentRepository = context.getBean(DepartmentRepository.class);
+        List<ExamDtos.DeptCategoryCount> deptCategories = new ArrayList<>();
+        int quotaSeats = 0;
+        for (int d = 0; d < departments; d++) {
+            Department dept = departmentRepository.findByDeptCode(deptCode(d))
+                    .orElseThrow(() -> new IllegalStateException("Roster upload did not create departments"));
+            int[] seats = new int[3];
+            for (int cat = 0; cat < 3; cat++) {
+                seats[cat] = (int) Math.ceil(counts[d][cat] * options.quotaRatio());
+                quotaSeats += seats[cat];
+            }
+            deptCategories.add(new ExamDtos.DeptCategoryCount(dept.getDeptId(), seats[0], seats[1], seats[2]));
+        }
+        ExamDtos.ExamInitRequest request = new ExamDtos.ExamInitRequest();
+        request.setExamName(EXAM_NAME);
+        request.setStartDate(LocalDate.now().plusDays(1));
+        request.setEndDate(LocalDate.now().plusDays(options.days()));
+        request.setTotalDays(options.days());
+        request.setDeptCategories(deptCategories);
+        long examId = context.getBean(ExamInitService.class).initializeExam(request).getExamId();
+        long examInitMs = millisSince(start);
+
+        // Minted up front so signing cost stays out of the measured requests
+        start = System.nanoTime();
+        JwtUtils jwtUtils = context.getBean(JwtUtils.class);
+        List<String> tokens = new ArrayList<>(rollNos.size());
+        for (String rollNo : rollNos) {
+            tokens.add(jwtUtils.generateToken(rollNo, "STUDENT"));
+        }
+        long tokensMs = millisSince(start);
+
+        return new Seeded(examId, rollNos, tokens, quotaSeats, new Timings(uploadMs, registerMs, examInitMs, tokensMs));
+    }
+
+    private void writeRoster(Path file, Random random, List<String> rollNos, int[][] counts) throws IOException {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1000)) {
+            Sheet sheet = workbook.createSheet("Students");
+            String[] header = { "Name", "RollNo", "EmailID", "Gender", "Department", "Hosteller/Dayscholar" };
+            writeRow(sheet.createRow(0), header);
+
+            for (int s = 0; s < options.students(); s++) {
+                int d = s % options.departments();
+                boolean hostel = random.nextDouble() < options.hostelRatio();
+                boolean male = random.nextBoolean();
+                String rollNo = ROLL_PREFIX + d + "-" + s;
+                rollNos.add(rollNo);
+                counts[d][hostel ? (male ? 1 : 2) : 0]++;
+
+                writeRow(sheet.createRow(s + 1), new String[] { "Load Test " + s, rollNo,
+                        rollNo.toLowerCase() + "@loadtest.local", male ? "MALE" : "FEMALE", deptCode(d),
+                        hostel ? "Hosteller" : "Dayscholar" });
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                workbook.write(out);
+            }
+            workbook.dispose();
+        }
+    }
+
+    private static void writeRow(Row row, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            row.createCell(i).setCellValue(values[i]);
+        }
+    }
+
+    // Same mapping as AuthService.registerStudentFromMaster
+    private int registerStudents() {
+        return context.getBean(JdbcTemplate.class).update(
+                "INSERT INTO students (roll_no, name, email, dept_id, category, created_at) "
+                        + "SELECT m.roll_no, m.name, m.email, d.dept_id, "
+                        + "CASE WHEN m.student_type = 'HOSTEL' AND m.gender = 'MALE' THEN 'HOSTEL_MALE' "
+                        + "WHEN m.student_type = 'HOSTEL' THEN 'HOSTEL_FEMALE' ELSE 'DAY' END, CURRENT_TIMESTAMP "
+                        + "FROM student_master_upload m JOIN departments d ON d.dept_code = m.dept_code "
+                        + "WHERE m.roll_no LIKE ?",
+                ROLL_PREFIX + "%");
+    }
+
+    private Long adminId() {
+        return context.getBean(AdminRepository.class).findAll().stream()
+                .findFirst().map(Admin::getAdminId).orElse(null);
+    }
+
+    static String deptCode(int d) {
+        return ROLL_PREFIX + d;
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
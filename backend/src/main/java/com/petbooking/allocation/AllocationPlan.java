@@ -0,0 +1,27 @@
+package com.petbooking.allocation;
+
+import java.util.List;
+
+/**
+ * Result of a {@link SlotAllocator}: seats[d][day] is the number of students of
+ * demand d (same order as the request) placed on that day.
+ */
+public record AllocationPlan(List<AllocationRequest.Demand> demands, int[][] seats) {
+
+    public int days() {
+        return seats.length == 0 ? 0 : seats[0].length;
+    }
+
+    /**
+     * Total seats used on each day.
+     */
+    public int[] dayLoads() {
+        int[] loads = new int[days()];
+        for (int[] row : seats) {
+            for (int day = 0; day < row.length; day++) {
+                loads[day] += row[day];
+            }
+        }
+        return loads;
+    }
+}
@@ -0,0 +1,42 @@
+package com.petbooking.allocation;
+
+import java.util.List;
+
+/**
+ * Input to a {@link SlotAllocator}.
+ *
+ * @param days              number of exam days to spread over
+ * @param systemsPerSession lab systems available in one session
+ * @param sessionsPerDay    sessions run per day
+ * @param labCapacityPerDay hard cap on seats per day, or 0 for systemsPerSession x sessionsPerDay
+ * @param demands           student count per group, e.g. one per (dept, category)
+ */
+public record AllocationRequest(int days, int systemsPerSession, int sessionsPerDay, int labCapacityPerDay,
+        List<Demand> demands) {
+
+    public record Demand(String key, int count) {
+    }
+
+    /**
+     * Seats available on one day, or Integer.MAX_VALUE when nothing limits it.
+     */
+    public int dailyCapacity() {
+        long sessions = (long) Math.max(systemsPerSession, 0) * Math.max(sessionsPerDay, 1);
+        long capacity = sessions > 0 ? sessions : Integer.MAX_VALUE;
+        if (labCapacityPerDay > 0) {
+            capacity = Math.min(capacity, labCapacityPerDay);
+        }
+        return (int) Math.min(capacity, Integer.MAX_VALUE);
+    }
+
+    public long totalStudents() {
+        return demands.stream().mapToLong(Demand::count).sum();
+    }
+
+    /**
+     * Days needed to seat every student at the given daily capacity (at least 1).
+     */
+    public static int daysNeeded(long totalStudents, int dailyCapacity) {
+        return (int) Math.max(1, (totalStudents + dailyCapacity - 1) / dailyCapacity);
+    }
+}
@@ -0,0 +1,33 @@
+package com.petbooking.allocation;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * The original perDay/remainder spread: each group is split evenly and its whole remainder
+ * goes to the last day. Ignores capacity, so the last day of a run carries every group's
+ * extra students.
+ */
+@Component
+public class EvenSpreadAllocator implements SlotAllocator {
+
+    @Override
+    public String name() {
+        return "even";
+    }
+
+    @Override
+    public AllocationPlan allocate(AllocationRequest request) {
+        int days = request.days();
+        int[][] seats = new int[request.demands().size()][days];
+
+        for (int d = 0; d < seats.length; d++) {
+            int count = request.demands().get(d).count();
+            int perDay = count / days;
+            int remainder = count % days;
+            for (int day = 0; day < days; day++) {
+                seats[d][day] = perDay + (day == days - 1 ? remainder : 0);
+            }
+        }
+        return new AllocationPlan(request.demands(), seats);
+    }
+}
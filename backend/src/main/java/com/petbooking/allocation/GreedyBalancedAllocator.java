@@ -0,0 +1,72 @@
+package com.petbooking.allocation;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Capacity-aware greedy spread. Each group gets its even share on every day, and each of
+ * its remainder seats goes to the least-loaded day that still has capacity (at most one
+ * per day, so the group itself stays spread evenly). Day loads therefore never differ by
+ * more than one seat, and no day exceeds the daily capacity when the total demand fits.
+ */
+@Component
+public class GreedyBalancedAllocator implements SlotAllocator {
+
+    @Override
+    public String name() {
+        return "greedy";
+    }
+
+    @Override
+    public AllocationPlan allocate(AllocationRequest request) {
+        int days = request.days();
+        List<AllocationRequest.Demand> demands = request.demands();
+        int dailyCapacity = request.dailyCapacity();
+        long capacity = (long) dailyCapacity * days;
+        if (request.totalStudents() > capacity) {
+            throw new RuntimeException("Not enough lab capacity: " + request.totalStudents()
+                    + " students but only " + capacity + " seats over " + days + " days");
+        }
+
+        int[][] seats = new int[demands.size()][days];
+        int[] load = new int[days];
+        PriorityQueue<Integer> leastLoaded = new PriorityQueue<>(
+                Comparator.comparingInt((Integer day) -> load[day]).thenComparingInt(day -> day));
+
+        for (int d = 0; d < demands.size(); d++) {
+            int count = demands.get(d).count();
+            int perDay = count / days;
+            int remainder = count % days;
+
+            if (perDay > 0) {
+                Arrays.fill(seats[d], perDay);
+                for (int day = 0; day < days; day++) {
+                    load[day] += perDay;
+                    if (load[day] > dailyCapacity) {
+                        throw new RuntimeException("Not enough lab capacity for " + demands.get(d).key());
+                    }
+                }
+            }
+
+            leastLoaded.clear();
+            for (int day = 0; day < days; day++) {
+                if (load[day] < dailyCapacity) {
+                    leastLoaded.add(day);
+                }
+            }
+            if (leastLoaded.size() < remainder) {
+                throw new RuntimeException("Not enough lab capacity for " + demands.get(d).key());
+            }
+            for (int i = 0; i < remainder; i++) {
+                int day = leastLoaded.poll();
+                seats[d][day]++;
+                load[day]++;
+            }
+        }
+        return new AllocationPlan(demands, seats);
+    }
+}
@@ -0,0 +1,15 @@
+package com.petbooking.allocation;
+
+/**
+ * Spreads per-group student counts (e.g. dept x category) over exam days.
+ * Implementations are selected with app.allocation.strategy.
+ */
+public interface SlotAllocator {
+
+    /**
+     * Strategy name used in app.allocation.strategy
+     */
+    String name();
+
+    AllocationPlan allocate(AllocationRequest request);
+}
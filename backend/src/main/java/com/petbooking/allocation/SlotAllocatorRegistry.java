@@ -0,0 +1,27 @@
+package com.petbooking.allocation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Picks the {@link SlotAllocator} named by app.allocation.strategy.
+ */
+@Component
+public class SlotAllocatorRegistry {
+
+    private final SlotAllocator active;
+
+    public SlotAllocatorRegistry(List<SlotAllocator> allocators,
+            @Value("${app.allocation.strategy:greedy}") String strategy) {
+        this.active = allocators.stream()
+                .filter(a -> a.name().equalsIgnoreCase(strategy))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown app.allocation.strategy: " + strategy));
+    }
+
+    public SlotAllocator active() {
+        return active;
+    }
+}
@@ -0,0 +1,90 @@
+package com.petbooking.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds how many API requests run against the database at once when requests are
+ * served on virtual threads. Without it, thousands of parked virtual threads queue
+ * inside Hikari and fail only after the 30s connection-timeout; here they wait a
+ * short, bounded time for a permit and otherwise get a fast 503.
+ *
+ * The slot stream is not limited: it holds its request open without a connection. With
+ * the commit pipeline enabled, POST /api/student/book has its own limit, sized to fill
+ * every pipeline worker's batch, since those requests wait on the pipeline, not on a
+ * connection.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class DbConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String STREAM_PATH = "/api/student/slots/stream";
+    private static final String BOOK_PATH = "/api/student/book";
+
+    private final Semaphore permits;
+    // Null unless the commit pipeline is enabled
+    private final Semaphore pipelineBookPermits;
+    private final long acquireTimeoutMs;
+
+    public DbConcurrencyLimitFilter(
+            @Value("${app.db.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+            @Value("${app.db.acquire-timeout-ms:5000}") long acquireTimeoutMs,
+            @Value("${booking.pipeline.enabled:false}") boolean pipelineEnabled,
+            @Value("${booking.pipeline.max-batch-size:100}") int pipelineBatchSize,
+            @Value("${booking.pipeline.workers:2}") int pipelineWorkers) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.pipelineBookPermits = pipelineEnabled
+                ? new Semaphore(Math.max(pipelineBatchSize * pipelineWorkers, maxConcurrency), true)
+                : null;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !uri.startsWith("/api/") || uri.equals(STREAM_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        Semaphore limit = pipelineBookPermits != null && "POST".equals(request.getMethod())
+                && request.getRequestURI().equals(BOOK_PATH) ? pipelineBookPermits : permits;
+        boolean acquired;
+        try {
+            acquired = limit.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"timestamp\":\"" + LocalDateTime.now()
+                    + "\",\"message\":\"Server is busy. Please retry shortly.\",\"status\":503}");
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limit.release();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.petbooking.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Open-in-view for every path except POST /api/student/book while the commit pipeline is
+ * enabled. Once a request has touched JPA, open-in-view keeps its connection until the
+ * response is written, so bookings waiting on their batch would hold the connections the
+ * pipeline needs to flush it. Defining the interceptor here makes Spring Boot skip its own.
+ */
+@Configuration
+@ConditionalOnExpression("${booking.pipeline.enabled:false} and ${spring.jpa.open-in-view:true}")
+public class PipelineOpenInViewConfig implements WebMvcConfigurer {
+
+    @Bean
+    public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+        return new OpenEntityManagerInViewInterceptor();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addWebRequestInterceptor(openEntityManagerInViewInterceptor())
+                .excludePathPatterns("/api/student/book");
+    }
+}
@@ -0,0 +1,70 @@
+package com.petbooking.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opens an Observation around every controller, service and repository call, named
+ * petbooking.controller / petbooking.service / petbooking.repository with the class and
+ * method as key values. Together with the HTTP, security filter and JDBC observations these
+ * form the per-request span tree that SlowRequestTraceHandler logs, and each one is also
+ * published as a timer.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "app.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class RequestTracingAspect {
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    // Proxy class -> readable type name (repository interface or unproxied class)
+    private final Map<Class<?>, String> typeNames = new ConcurrentHashMap<>();
+
+    @Around("@within(org.springframework.web.bind.annotation.RestController)")
+    public Object controller(ProceedingJoinPoint joinPoint) throws Throwable {
+        return observe("controller", joinPoint);
+    }
+
+    @Around("@within(org.springframework.stereotype.Service)")
+    public Object service(ProceedingJoinPoint joinPoint) throws Throwable {
+        return observe("service", joinPoint);
+    }
+
+    @Around("bean(*Repository)")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return observe("repository", joinPoint);
+    }
+
+    private Object observe(String layer, ProceedingJoinPoint joinPoint) throws Throwable {
+        String type = typeName(joinPoint.getThis().getClass());
+        String method = joinPoint.getSignature().getName();
+        return Observation.createNotStarted("petbooking." + layer, observationRegistry)
+                .contextualName(type + "." + method)
+                .lowCardinalityKeyValue("class", type)
+                .lowCardinalityKeyValue("method", method)
+                .observeChecked(() -> joinPoint.proceed());
+    }
+
+    private String typeName(Class<?> proxyClass) {
+        return typeNames.computeIfAbsent(proxyClass, type -> {
+            // Repositories are JDK proxies; name them after our interface, not SimpleJpaRepository
+            for (Class<?> iface : ClassUtils.getAllInterfacesForClass(type)) {
+                if (iface.getPackageName().startsWith("com.petbooking")) {
+                    return iface.getSimpleName();
+                }
+            }
+            return ClassUtils.getUserClass(type).getSimpleName();
+        });
+    }
+}
@@ -0,0 +1,158 @@
+package com.petbooking.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationView;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.ttddyy.observation.tracing.QueryContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local span exporter. Every Observation started under an HTTP server request (security
+ * filters, JWT, controller, service, repository, JDBC connection and query) is recorded as a
+ * span in that request's tree. When the request finishes above app.tracing.slow-request-ms
+ * the tree is logged with start offset, total and self time per span; faster requests are
+ * dropped. Observations outside a request (schedulers, pipeline workers) are ignored.
+ */
+@Component
+@ConditionalOnProperty(name = "app.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowRequestTraceHandler implements ObservationHandler<Observation.Context> {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowRequestTraceHandler.class);
+
+    @Value("${app.tracing.slow-request-ms:500}")
+    private long slowRequestMs;
+
+    // Spans kept per request; the rest are counted, not recorded
+    @Value("${app.tracing.max-spans:256}")
+    private int maxSpans;
+
+    private static final class Span {
+        final Observation.Context context;
+        final Span root;
+        final long startNanos;
+        long endNanos = -1;
+        final List<Span> children = new ArrayList<>();
+        // Root only
+        final AtomicInteger spanCount;
+        final AtomicInteger dropped;
+
+        Span(Observation.Context context, Span root, long startNanos) {
+            this.context = context;
+            this.root = root == null ? this : root;
+            this.startNanos = startNanos;
+            this.spanCount = root == null ? new AtomicInteger(1) : null;
+            this.dropped = root == null ? new AtomicInteger() : null;
+        }
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return true;
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        long now = System.nanoTime();
+        ObservationView parentObservation = context.getParentObservation();
+        Span parent = parentObservation == null ? null : parentObservation.getContextView().get(Span.class);
+
+        if (parent == null) {
+            if (context instanceof ServerRequestObservationContext) {
+                context.put(Span.class, new Span(context, null, now));
+            }
+            return;
+        }
+
+        Span root = parent.root;
+        if (root.spanCount.incrementAndGet() > maxSpans) {
+            root.dropped.incrementAndGet();
+            return;
+        }
+        Span span = new Span(context, root, now);
+        synchronized (root) {
+            parent.children.add(span);
+        }
+        context.put(Span.class, span);
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Span span = context.get(Span.class);
+        if (span == null) {
+            return;
+        }
+        span.endNanos = System.nanoTime();
+        if (span.root != span) {
+            return;
+        }
+
+        long elapsedMs = (span.endNanos - span.startNanos) / 1_000_000;
+        if (elapsedMs < slowRequestMs || isEventStream(context)) {
+            return;
+        }
+        StringBuilder out = new StringBuilder();
+        out.append("Slow request ").append(describeRequest(context)).append(" took ").append(elapsedMs)
+                .append(" ms (threshold ").append(slowRequestMs).append(" ms)\n");
+        out.append(String.format("  %9s %9s %9s  %s%n", "start ms", "total ms", "self ms", "span"));
+        synchronized (span) {
+            render(span, span.startNanos, 0, out);
+        }
+        if (span.dropped.get() > 0) {
+            out.append("  ... ").append(span.dropped.get())
+                    .append(" more spans not recorded (app.tracing.max-spans)\n");
+        }
+        log.warn(out.toString());
+    }
+
+    private void render(Span span, long requestStart, int depth, StringBuilder out) {
+        long end = span.endNanos >= 0 ? span.endNanos : System.nanoTime();
+        long total = end - span.startNanos;
+        long childTime = 0;
+        for (Span child : span.children) {
+            long childEnd = child.endNanos >= 0 ? child.endNanos : end;
+            childTime += childEnd - child.startNanos;
+        }
+        out.append(String.format("  %9.1f %9.1f %9.1f  %s%s%n",
+                (span.startNanos - requestStart) / 1e6, total / 1e6, Math.max(total - childTime, 0) / 1e6,
+                "  ".repeat(depth), label(span.context)));
+        for (Span child : span.children) {
+            render(child, requestStart, depth + 1, out);
+        }
+    }
+
+    private static String label(Observation.Context context) {
+        String name = context.getContextualName() != null ? context.getContextualName() : context.getName();
+        if (context instanceof QueryContext query && !query.getQueries().isEmpty()) {
+            String sql = query.getQueries().get(0).replaceAll("\\s+", " ");
+            return name + ": " + (sql.length() > 160 ? sql.substring(0, 160) + "..." : sql);
+        }
+        return name;
+    }
+
+    private static String describeRequest(Observation.Context context) {
+        ServerRequestObservationContext http = (ServerRequestObservationContext) context;
+        HttpServletRequest request = http.getCarrier();
+        HttpServletResponse response = http.getResponse();
+        return request.getMethod() + " " + request.getRequestURI()
+                + (response != null ? " -> " + response.getStatus() : "");
+    }
+
+    // Long-lived SSE streams are slow by design
+    private static boolean isEventStream(Observation.Context context) {
+        HttpServletResponse response = ((ServerRequestObservationContext) context).getResponse();
+        String contentType = response != null ? response.getContentType() : null;
+        return contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+}
@@ -92,6 +92,8 @@ public class AdminController {
 
     @Autowired
     private com.petbooking.repository.StudentRepository studentRepository;
+    @Autowired
+    private com.petbooking.service.StudentAvailabilityCache availabilityCache;
 
     @GetMapping("/students")
     public ResponseEntity<?> getAllStudents() {
@@ -101,17 +103,50 @@ public class AdminController {
     @Autowired
     private com.petbooking.service.StudentMasterUploadService uploadService;
 
+    @Autowired
+    private com.petbooking.repository.AdminRepository adminRepository;
+
+    // Admin tokens carry the admin's email as subject
+    private Long adminIdOf(org.springframework.security.core.Authentication auth) {
+        return adminRepository.findByEmail(auth.getName())
+                .map(com.petbooking.entity.Admin::getAdminId)
+                .orElse(null);
+    }
+
     @PostMapping(value = "/student-master/upload", consumes = org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> uploadStudentMaster(
-            @RequestParam("file") org.springframework.web.multipart.MultipartFile file) {
+            @RequestParam("file") org.springframework.web.multipart.MultipartFile file,
+            org.springframework.security.core.Authentication auth) {
         try {
-            Long adminId = 1L; // TODO: Extract from SecurityContext
-            return ResponseEntity.ok(uploadService.processExcelFile(file, adminId));
+            return ResponseEntity.ok(uploadService.processExcelFile(file, adminIdOf(auth)));
         } catch (java.io.IOException e) {
             return ResponseEntity.badRequest().body("Error processing file: " + e.getMessage());
         }
     }
 
+    @Autowired
+    private com.petbooking.service.StudentUploadJobService uploadJobService;
+
+    // Background variant of /student-master/upload: returns a job to poll instead of blocking
+    @PostMapping(value = "/student-master/upload-jobs", consumes = org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> submitStudentMasterUploadJob(
+            @RequestParam("file") org.springframework.web.multipart.MultipartFile file,
+            org.springframework.security.core.Authentication auth) {
+        try {
+            return ResponseEntity.accepted().body(uploadJobService.submit(file, adminIdOf(auth)));
+        } catch (java.io.IOException e) {
+            return ResponseEntity.badRequest().body("Error processing file: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/student-master/upload-jobs/{jobId}")
+    public ResponseEntity<?> getStudentMasterUploadJob(@PathVariable String jobId) {
+        return uploadJobService.getStatus(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(404)
+                        .body(java.util.Map.of("message", "Upload job not found: " + jobId)));
+    }
+
     @Autowired
     private com.petbooking.repository.StudentMasterUploadRepository studentMasterUploadRepository;
 
@@ -188,7 +223,9 @@ public class AdminController {
                 student.setDepartment(dept);
             }
 
-            return ResponseEntity.ok(studentRepository.save(student));
+            var saved = studentRepository.save(student);
+            availabilityCache.evictStudent(rollNo);
+            return ResponseEntity.ok(saved);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body("Update failed: " + e.getMessage());
@@ -208,7 +245,17 @@ public class AdminController {
             String startDateStr = (String) request.getOrDefault("startDate", java.time.LocalDate.now().toString());
             java.time.LocalDate startDate = java.time.LocalDate.parse(startDateStr);
 
-            var result = slotGenerationService.generateSlots(systemsPerSession, startDate);
+            // Optional: several sessions per day, and a hard per-day lab limit
+            int sessionsPerDay = ((Number) request.getOrDefault("sessionsPerDay", 1)).intValue();
+            int labCapacityPerDay = ((Number) request.getOrDefault("labCapacityPerDay", 0)).intValue();
+
+            // "incremental": true diffs against the existing slots and keeps their bookings
+            boolean incremental = Boolean.TRUE.equals(request.get("incremental"));
+            var result = incremental
+                    ? slotGenerationService.regenerateSlotsIncremental(systemsPerSession, sessionsPerDay,
+                            labCapacityPerDay, startDate)
+                    : slotGenerationService.generateSlots(systemsPerSession, sessionsPerDay, labCapacityPerDay,
+                            startDate);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             e.printStackTrace();
@@ -255,6 +302,33 @@ public class AdminController {
         return ResponseEntity.ok(examInitService.getQuotasForExam(examId));
     }
 
+    @Autowired
+    private com.petbooking.service.SeatInventoryService seatInventoryService;
+
+    @GetMapping("/exams/{examId}/seats")
+    public ResponseEntity<?> getExamSeatAvailability(@PathVariable Long examId,
+            @RequestParam Long deptId, @RequestParam Integer categoryType) {
+        java.util.Map<String, Object> result = new java.util.HashMap<>();
+        result.put("totalSeats", examInitService.countSeats(examId));
+        result.put("availableDates", seatInventoryService.findAvailableSlots(examId, deptId, categoryType));
+        return ResponseEntity.ok(result);
+    }
+
+    // Seat-level CSV (one line per seat, whichever inventory model is in use)
+    @GetMapping(value = "/exams/{examId}/seats/export", produces = "text/csv")
+    public ResponseEntity<org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody> exportExamSeats(
+            @PathVariable Long examId) {
+        return ResponseEntity.ok()
+                .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"exam-" + examId + "-seats.csv\"")
+                .body(out -> {
+                    var writer = new java.io.BufferedWriter(
+                            new java.io.OutputStreamWriter(out, java.nio.charset.StandardCharsets.UTF_8));
+                    seatInventoryService.exportSeats(examId, writer);
+                    writer.flush();
+                });
+    }
+
     @DeleteMapping("/exams/{examId}")
     public ResponseEntity<?> deleteExam(@PathVariable Long examId) {
         try {
@@ -265,15 +339,29 @@ public class AdminController {
         }
     }
 
+    @Autowired
+    private com.petbooking.repository.ExamQuotaRepository quotaRepository;
+    @Autowired
+    private com.petbooking.service.QuotaAdmissionGate admissionGate;
+    @Autowired
+    private com.petbooking.service.QuotaStripeService quotaStripes;
+    @Autowired
+    private org.springframework.context.ApplicationEventPublisher eventPublisher;
+
     @PatchMapping("/quotas/{quotaId}")
     public ResponseEntity<?> updateQuota(@PathVariable Long quotaId,
             @RequestBody java.util.Map<String, Object> updates) {
         try {
-            var quota = quotaRepository.findById(quotaId).orElseThrow(() -> new RuntimeException("Quota not found"));
-            if (updates.containsKey("maxCount")) {
-                quota.setMaxCount(Integer.parseInt(updates.get("maxCount").toString()));
-            }
-            quotaRepository.save(quota);
+            Integer maxCount = updates.containsKey("maxCount")
+                    ? Integer.valueOf(updates.get("maxCount").toString())
+                    : null;
+            // Split the quota's counter over this many rows (1 = single counter)
+            Integer stripeCount = updates.containsKey("stripeCount")
+                    ? Integer.valueOf(updates.get("stripeCount").toString())
+                    : null;
+            var quota = quotaStripes.updateQuota(quotaId, maxCount, stripeCount);
+            admissionGate.invalidate(quotaId);
+            eventPublisher.publishEvent(com.petbooking.event.QuotaChangedEvent.updated(quota));
             return ResponseEntity.ok(quota);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Update failed: " + e.getMessage());
@@ -286,6 +374,8 @@ public class AdminController {
             var quota = quotaRepository.findById(quotaId).orElseThrow(() -> new RuntimeException("Quota not found"));
             quota.setIsClosed(!quota.getIsClosed());
             quotaRepository.save(quota);
+            admissionGate.invalidate(quotaId);
+            eventPublisher.publishEvent(com.petbooking.event.QuotaChangedEvent.updated(quota));
             return ResponseEntity.ok(quota);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Toggle failed: " + e.getMessage());
@@ -295,7 +385,11 @@ public class AdminController {
     @DeleteMapping("/quotas/{quotaId}")
     public ResponseEntity<?> deleteQuota(@PathVariable Long quotaId) {
         try {
-            quotaRepository.deleteById(quotaId);
+            var quota = quotaRepository.findById(quotaId).orElseThrow(() -> new RuntimeException("Quota not found"));
+            quotaStripes.deleteForQuota(quotaId);
+            quotaRepository.delete(quota);
+            admissionGate.invalidate(quotaId);
+            eventPublisher.publishEvent(com.petbooking.event.QuotaChangedEvent.removed(quota));
             return ResponseEntity.ok("Quota deleted");
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Delete failed: " + e.getMessage());
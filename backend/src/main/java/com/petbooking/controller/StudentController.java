@@ -28,7 +28,7 @@ public class StudentController {
     private BookingService bookingService;
 
     @Autowired
-    private com.petbooking.repository.ExamQuotaRepository examQuotaRepository;
+    private com.petbooking.service.StudentAvailabilityCache availabilityCache;
 
     @GetMapping("/slots")
     public ResponseEntity<?> getAvailableSlots(Authentication auth) {
@@ -36,79 +36,85 @@ public class StudentController {
             if (auth == null) {
                 return ResponseEntity.status(401).body("Not Authenticated");
             }
-            String rollNo = auth.getName();
-            System.out.println("Fetching slots for Student: " + rollNo);
-
-            Student student = studentRepository.findById(rollNo)
-                    .orElseThrow(() -> new RuntimeException("Student not found with RollNo: " + rollNo));
-
-            // Map student category to categoryType: 1=Day, 2=HostelM, 3=HostelF
-            Integer categoryType;
-            switch (student.getCategory()) {
-                case DAY:
-                    categoryType = 1;
-                    break;
-                case HOSTEL_MALE:
-                    categoryType = 2;
-                    break;
-                case HOSTEL_FEMALE:
-                    categoryType = 3;
-                    break;
-                default:
-                    categoryType = 1;
-            }
-
-            String deptCode = student.getDepartment().getDeptCode();
-            System.out.println("Student Dept: " + deptCode + ", CategoryType: " + categoryType);
-
-            // Get available exam quotas for student's department and category
-            var quotas = examQuotaRepository.findAvailableForStudent(deptCode, categoryType);
-            System.out.println("Found " + quotas.size() + " available quotas");
-
-            // Transform quotas into response format the frontend expects
-            var response = quotas.stream().map(q -> {
-                var map = new java.util.HashMap<String, Object>();
-                map.put("slotId", q.getId());
-                map.put("examDate", q.getExam().getStartingDate().toString());
-                map.put("examName", q.getExam().getExamName());
-                map.put("startTime", "09:00");
-                map.put("endTime", "17:00");
-                map.put("maxCount", q.getMaxCount());
-                map.put("bookedCount", q.getCurrentFill());
-                map.put("available", q.getMaxCount() - q.getCurrentFill());
-                map.put("department", deptCode);
-                map.put("category",
-                        categoryType == 1 ? "Day Scholar" : categoryType == 2 ? "Hostel Boys" : "Hostel Girls");
-
-                // Add quotas array for frontend compatibility
-                var quotaInfo = new java.util.HashMap<String, Object>();
-                quotaInfo.put("quotaId", q.getId());
-                quotaInfo.put("quotaCapacity", q.getMaxCount());
-                quotaInfo.put("bookedCount", q.getCurrentFill());
-                quotaInfo.put("department", java.util.Map.of("deptCode", deptCode));
-                map.put("quotas", java.util.List.of(quotaInfo));
-
-                return map;
-            }).toList();
-
-            return ResponseEntity.ok(response);
+            // Served from the pre-serialized (deptCode, categoryType) availability cache
+            String json = availabilityCache.getAvailabilityJson(auth.getName());
+            return ResponseEntity.ok().contentType(org.springframework.http.MediaType.APPLICATION_JSON).body(json);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body("Error fetching slots: " + e.getMessage());
         }
     }
 
+    @Autowired
+    private com.petbooking.service.QuotaStreamPublisher quotaStreamPublisher;
+
+    // Push alternative to polling /slots: a snapshot first, then coalesced fill-level deltas
+    @GetMapping(value = "/slots/stream", produces = org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE)
+    public org.springframework.web.servlet.mvc.method.annotation.SseEmitter streamSlots(Authentication auth)
+            throws java.io.IOException {
+        return quotaStreamPublisher.subscribe(auth.getName());
+    }
+
+    @Autowired
+    private com.petbooking.service.IdempotencyStore idempotencyStore;
+
+    // Clients may send an Idempotency-Key: retries with the same key get the first answer back
     @PostMapping("/book")
-    public ResponseEntity<?> bookSlot(@RequestBody Dtos.BookingRequest request, Authentication auth) {
+    public ResponseEntity<?> bookSlot(@RequestBody Dtos.BookingRequest request, Authentication auth,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             String rollNo = auth.getName();
-            var result = bookingService.bookExamQuota(rollNo, request.getSlotId());
-            return ResponseEntity.ok(result);
+            if (idempotencyKey == null || idempotencyKey.isBlank()) {
+                return bookExamQuota(rollNo, request);
+            }
+            if (idempotencyKey.length() > 255) {
+                return ResponseEntity.badRequest().body(java.util.Map.of("message", "Idempotency-Key is too long"));
+            }
+            return idempotencyStore.execute(rollNo, idempotencyKey, String.valueOf(request.getSlotId()),
+                    () -> bookExamQuota(rollNo, request), StudentController::isTimeout,
+                    () -> recoverBooking(rollNo, request));
+        } catch (com.petbooking.service.IdempotencyStore.KeyReusedException e) {
+            return ResponseEntity.unprocessableEntity().body(java.util.Map.of("message", e.getMessage()));
+        } catch (com.petbooking.service.IdempotencyStore.InProgressException e) {
+            return ResponseEntity.status(409).body(java.util.Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(java.util.Map.of("message", e.getMessage()));
         }
     }
 
+    // Bookings and booking refusals are answers worth replaying; other errors are thrown so a
+    // retry runs again. Pipeline timeouts are thrown too, but keep the key: see recoverBooking
+    private ResponseEntity<?> bookExamQuota(String rollNo, Dtos.BookingRequest request) {
+        try {
+            return ResponseEntity.ok(bookingService.bookExamQuota(rollNo, request.getSlotId()));
+        } catch (com.petbooking.exception.BookingException e) {
+            if (isTimeout(e)) {
+                throw e;
+            }
+            return ResponseEntity.badRequest().body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
+
+    private static boolean isTimeout(RuntimeException e) {
+        return e instanceof com.petbooking.exception.BookingException b
+                && b.getReason() == com.petbooking.exception.BookingException.Reason.TIMEOUT;
+    }
+
+    // Retry of a request whose pipeline wait timed out: the booking it committed meanwhile,
+    // 409 while it is still queued, or null (run again) if it failed
+    private ResponseEntity<?> recoverBooking(String rollNo, Dtos.BookingRequest request) {
+        java.util.Map<String, Object> booking;
+        try {
+            booking = bookingService.findExamQuotaBooking(rollNo, request.getSlotId());
+        } catch (com.petbooking.exception.BookingException e) {
+            if (isTimeout(e)) {
+                throw new com.petbooking.service.IdempotencyStore.InProgressException();
+            }
+            throw e;
+        }
+        return booking != null ? ResponseEntity.ok(booking) : null;
+    }
+
     // ========== NEW: Exam Slot Endpoints ==========
     @Autowired
     private com.petbooking.repository.ExamSlotRepository examSlotRepository;
@@ -143,4 +149,18 @@ public class StudentController {
         Booking booking = bookingService.bookExamSlot(rollNo, examSlotId);
         return ResponseEntity.ok(booking);
     }
+
+    // Date-choice booking: claims one free seat on the preferred date
+    @PostMapping("/book-exam-date")
+    public ResponseEntity<?> bookExamDate(@RequestBody com.petbooking.dto.ExamDtos.SlotBookingRequest request,
+            Authentication auth) {
+        if (request.getExamId() == null || request.getPreferredDate() == null) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("message", "examId and preferredDate are required"));
+        }
+        try {
+            return ResponseEntity.ok(bookingService.bookExamDate(auth.getName(), request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
 }
@@ -19,6 +19,10 @@ public class ExamDtos {
         private Integer perDeptCapacity;
         private String examPurpose;
         private List<DeptCategoryCount> deptCategories;
+        // Optional lab limits for the seat spread (null = unlimited)
+        private Integer systemsPerSession;
+        private Integer sessionsPerDay;
+        private Integer labCapacityPerDay;
     }
 
     @Data
@@ -59,4 +63,16 @@ public class ExamDtos {
         private String status;
         private String message;
     }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SeatAvailability {
+        private LocalDate slotDate;
+        private Long deptId;
+        private Integer categoryType;
+        private Integer capacity;
+        private Integer bookedCount;
+        private Integer available;
+    }
 }
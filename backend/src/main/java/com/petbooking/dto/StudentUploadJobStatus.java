@@ -0,0 +1,22 @@
+package com.petbooking.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class StudentUploadJobStatus {
+    private String jobId;
+    private String fileName;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    private int rowsParsed;
+    private int rowsInserted;
+    private int rowsRejected;
+    private double rowsPerSecond;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+    // Set once the job has completed; same shape as the synchronous upload response
+    private StudentUploadResponse result;
+}
@@ -40,7 +40,15 @@ public class ExamQuota {
     @Column(name = "is_closed")
     private Boolean isClosed = false;
 
+    // >1 = capacity split over that many exam_quota_stripes rows; currentFill is then their roll-up
+    @Column(name = "stripe_count")
+    private Integer stripeCount = 1;
+
     public Boolean getIsClosed() {
         return isClosed != null ? isClosed : false;
     }
+
+    public Integer getStripeCount() {
+        return stripeCount != null ? stripeCount : 1;
+    }
 }
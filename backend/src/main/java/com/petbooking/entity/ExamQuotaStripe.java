@@ -0,0 +1,39 @@
+package com.petbooking.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * One sub-counter of a striped exam quota. The quota's capacity is split over
+ * stripeNo 0..stripeCount-1 and its fill is the sum of the stripes' currentFill.
+ */
+@Entity
+@Table(name = "exam_quota_stripes", uniqueConstraints = @UniqueConstraint(columnNames = { "quota_id",
+        "stripe_no" }))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+public class ExamQuotaStripe {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "quota_id", nullable = false)
+    @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+    private ExamQuota quota;
+
+    @Column(name = "stripe_no", nullable = false)
+    private Integer stripeNo;
+
+    @Column(name = "max_count", nullable = false)
+    private Integer maxCount;
+
+    @Column(name = "current_fill", nullable = false)
+    private Integer currentFill = 0;
+}
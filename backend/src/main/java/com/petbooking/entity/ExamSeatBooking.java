@@ -0,0 +1,41 @@
+package com.petbooking.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A booked seat in the compact inventory. seatNo is the 1-based position within its
+ * inventory row, i.e. the booked_count value that the booking claimed.
+ */
+@Entity
+@Table(name = "exam_seat_bookings", uniqueConstraints = @UniqueConstraint(columnNames = { "inventory_id",
+        "seat_no" }))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+public class ExamSeatBooking {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "seat_booking_id")
+    private Long seatBookingId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "inventory_id", nullable = false)
+    @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+    private ExamSeatInventory inventory;
+
+    @Column(name = "seat_no", nullable = false)
+    private Integer seatNo;
+
+    @Column(name = "roll_number", nullable = false)
+    private String rollNumber;
+
+    @Column(name = "booked_at")
+    private LocalDateTime bookedAt = LocalDateTime.now();
+}
@@ -0,0 +1,50 @@
+package com.petbooking.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDate;
+
+/**
+ * Compact seat inventory: one row per (exam, date, dept, category) holding a capacity and
+ * a booked counter, instead of one exam_slot_seats row per physical seat. Individual
+ * bookings are kept in exam_seat_bookings.
+ */
+@Entity
+@Table(name = "exam_seat_inventory", uniqueConstraints = @UniqueConstraint(columnNames = { "exam_id",
+        "slot_date", "dept_id", "category_type" }))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+public class ExamSeatInventory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "inventory_id")
+    private Long inventoryId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "exam_id", nullable = false)
+    @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+    private Exam exam;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dept_id", nullable = false)
+    @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+    private Department department;
+
+    @Column(name = "category_type", nullable = false)
+    private Integer categoryType; // 1=Day, 2=HostelM, 3=HostelF
+
+    @Column(name = "capacity", nullable = false)
+    private Integer capacity;
+
+    @Column(name = "booked_count", nullable = false)
+    private Integer bookedCount = 0;
+}
@@ -0,0 +1,47 @@
+package com.petbooking.event;
+
+import com.petbooking.entity.ExamQuota;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published whenever an exam quota's fill level or definition changes.
+ * Listeners run after the surrounding transaction commits.
+ */
+@Data
+@AllArgsConstructor
+public class QuotaChangedEvent {
+
+    public enum Kind {
+        FILL, // currentFill moved
+        UPDATED, // maxCount or isClosed changed
+        REMOVED, // the quota was deleted
+        ALL // exams created or deleted; every cached view is stale
+    }
+
+    private Kind kind;
+    private Long quotaId;
+    private String deptCode;
+    private Integer categoryType;
+    private Integer currentFill;
+    private Integer maxCount; // only set for UPDATED
+    private Boolean closed; // only set for UPDATED
+
+    public static QuotaChangedEvent fill(Long quotaId, String deptCode, Integer categoryType, Integer currentFill) {
+        return new QuotaChangedEvent(Kind.FILL, quotaId, deptCode, categoryType, currentFill, null, null);
+    }
+
+    public static QuotaChangedEvent updated(ExamQuota quota) {
+        return new QuotaChangedEvent(Kind.UPDATED, quota.getId(), quota.getDepartment().getDeptCode(),
+                quota.getCategoryType(), quota.getCurrentFill(), quota.getMaxCount(), quota.getIsClosed());
+    }
+
+    public static QuotaChangedEvent removed(ExamQuota quota) {
+        return new QuotaChangedEvent(Kind.REMOVED, quota.getId(), quota.getDepartment().getDeptCode(),
+                quota.getCategoryType(), null, null, null);
+    }
+
+    public static QuotaChangedEvent all() {
+        return new QuotaChangedEvent(Kind.ALL, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,31 @@
+package com.petbooking.exception;
+
+/**
+ * A booking attempt turned down for a known reason. The message is shown to the student
+ * as before; the reason is what booking metrics are tagged with.
+ */
+public class BookingException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        NOT_FOUND, // student, slot or quota does not exist
+        CLOSED, // booking closed for the slot or quota
+        FULL, // no capacity left
+        DUPLICATE, // student already holds a booking
+        MISMATCH, // slot is for another category, department or gender
+        TIMEOUT, // gave up waiting for the commit pipeline
+        BUSY // the remaining capacity is held by bookings still in flight; try again
+    }
+
+    private final Reason reason;
+
+    public BookingException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -12,4 +12,5 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     boolean existsByStudentRollNoAndSlotSlotId(String rollNo, Long slotId);
     List<Booking> findBySlotSlotId(Long slotId);
     List<Booking> findByDepartmentDeptId(Long deptId);
+    Optional<Booking> findByStudentRollNoAndExamQuotaId(String rollNo, Long examQuotaId);
 }
@@ -1,9 +1,8 @@
 package com.petbooking.repository;
 
 import com.petbooking.entity.DeptQuota;
-import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,7 +14,10 @@ public interface DeptQuotaRepository extends JpaRepository<DeptQuota, Long> {
     
     Optional<DeptQuota> findBySlotSlotIdAndDepartmentDeptId(Long slotId, Long deptId);
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT d FROM DeptQuota d WHERE d.slot.slotId = :slotId AND d.department.deptId = :deptId")
-    Optional<DeptQuota> findBySlotAndDeptWithLock(@Param("slotId") Long slotId, @Param("deptId") Long deptId);
+    // Atomic increment of booked_count (returns 1 if a seat was taken, 0 if the quota is full)
+    @Modifying
+    @Query("UPDATE DeptQuota d SET d.bookedCount = d.bookedCount + 1 " +
+            "WHERE d.slot.slotId = :slotId AND d.department.deptId = :deptId " +
+            "AND d.bookedCount < d.quotaCapacity")
+    int incrementBookedCount(@Param("slotId") Long slotId, @Param("deptId") Long deptId);
 }
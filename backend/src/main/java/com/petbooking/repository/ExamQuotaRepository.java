@@ -24,12 +24,16 @@ public interface ExamQuotaRepository extends JpaRepository<ExamQuota, Long> {
         @Modifying
         @Query("UPDATE ExamQuota q SET q.currentFill = q.currentFill + 1 " +
                         "WHERE q.exam.examId = :examId AND q.department.deptId = :deptId " +
-                        "AND q.categoryType = :categoryType AND q.currentFill < q.maxCount")
+                        "AND q.categoryType = :categoryType AND q.currentFill < q.maxCount " +
+                        "AND (q.stripeCount IS NULL OR q.stripeCount <= 1)")
         int incrementCurrentFill(@Param("examId") Long examId,
                         @Param("deptId") Long deptId,
                         @Param("categoryType") Integer categoryType);
 
-        // Get all quotas for an exam
+        // Read current_fill straight from the database (bypasses the persistence context)
+        @Query("SELECT q.currentFill FROM ExamQuota q WHERE q.id = :id")
+        Integer findCurrentFillById(@Param("id") Long id);
+
         // Get all quotas for an exam
         List<ExamQuota> findByExamExamId(Long examId);
 
@@ -0,0 +1,25 @@
+package com.petbooking.repository;
+
+import com.petbooking.entity.ExamSeatBooking;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ExamSeatBookingRepository extends JpaRepository<ExamSeatBooking, Long> {
+
+        // Check if student already booked
+        boolean existsByRollNumber(String rollNumber);
+
+        @Query("SELECT b FROM ExamSeatBooking b WHERE b.inventory.exam.examId = :examId")
+        List<ExamSeatBooking> findByExamId(@Param("examId") Long examId);
+
+        @Modifying
+        @Query("DELETE FROM ExamSeatBooking b WHERE b.inventory.inventoryId IN " +
+                        "(SELECT i.inventoryId FROM ExamSeatInventory i WHERE i.exam.examId = :examId)")
+        int deleteByExamId(@Param("examId") Long examId);
+}
@@ -0,0 +1,35 @@
+package com.petbooking.repository;
+
+import com.petbooking.entity.ExamSeatInventory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ExamSeatInventoryRepository extends JpaRepository<ExamSeatInventory, Long> {
+
+        // Dates that still have free seats for an exam, dept, and category
+        @Query("SELECT i FROM ExamSeatInventory i WHERE i.exam.examId = :examId " +
+                        "AND i.department.deptId = :deptId AND i.categoryType = :categoryType " +
+                        "AND i.bookedCount < i.capacity ORDER BY i.slotDate")
+        List<ExamSeatInventory> findAvailableSlots(@Param("examId") Long examId,
+                        @Param("deptId") Long deptId,
+                        @Param("categoryType") Integer categoryType);
+
+        // Total seats for an exam (same number as counting exam_slot_seats rows)
+        @Query("SELECT COALESCE(SUM(i.capacity), 0) FROM ExamSeatInventory i WHERE i.exam.examId = :examId")
+        long sumCapacityByExamId(@Param("examId") Long examId);
+
+        // All inventory rows for an exam with their department, in export order
+        @Query("SELECT i FROM ExamSeatInventory i JOIN FETCH i.department d WHERE i.exam.examId = :examId " +
+                        "ORDER BY i.slotDate, d.deptCode, i.categoryType")
+        List<ExamSeatInventory> findByExamIdWithDepartment(@Param("examId") Long examId);
+
+        @Modifying
+        @Query("DELETE FROM ExamSeatInventory i WHERE i.exam.examId = :examId")
+        int deleteByExamId(@Param("examId") Long examId);
+}
@@ -22,7 +22,8 @@ public interface ExamSlotSeatRepository extends JpaRepository<ExamSlotSeat, Long
                         @Param("deptId") Long deptId,
                         @Param("categoryType") Integer categoryType);
 
-        // Atomic booking - find first available and lock
+        // All free seats on one date, unlocked; bookings claim a seat with
+        // SeatInventoryService.claimSeat (FOR UPDATE SKIP LOCKED) instead
         @Query("SELECT s FROM ExamSlotSeat s WHERE s.exam.examId = :examId " +
                         "AND s.department.deptId = :deptId AND s.categoryType = :categoryType " +
                         "AND s.slotDate = :slotDate AND s.status = 'AVAILABLE'")
@@ -2,8 +2,12 @@ package com.petbooking.repository;
 
 import com.petbooking.entity.StudentMasterUpload;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +19,11 @@ public interface StudentMasterUploadRepository extends JpaRepository<StudentMast
     boolean existsByRollNo(String rollNo);
 
     boolean existsByEmail(String email);
+
+    // Bulk duplicate checks for uploads: which of these values are already taken
+    @Query("SELECT s.rollNo FROM StudentMasterUpload s WHERE s.rollNo IN :rollNos")
+    List<String> findExistingRollNos(@Param("rollNos") Collection<String> rollNos);
+
+    @Query("SELECT s.email FROM StudentMasterUpload s WHERE s.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
 }
@@ -2,10 +2,22 @@ package com.petbooking.repository;
 
 import com.petbooking.entity.Student;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface StudentRepository extends JpaRepository<Student, String> {
     Optional<Student> findByEmail(String email);
+
+    // [deptCode, category] for a student, without hydrating the entity
+    @Query("SELECT d.deptCode, s.category FROM Student s JOIN s.department d WHERE s.rollNo = :rollNo")
+    List<Object[]> findDeptCodeAndCategory(@Param("rollNo") String rollNo);
+
+    // [deptCode, category, count] per department and category, for slot generation
+    @Query("SELECT d.deptCode, s.category, COUNT(s) FROM Student s LEFT JOIN s.department d " +
+            "GROUP BY d.deptCode, s.category")
+    List<Object[]> countByDeptAndCategory();
 }
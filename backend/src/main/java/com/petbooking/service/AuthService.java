@@ -22,6 +22,8 @@ public class AuthService {
     @Autowired
     private OtpService otpService;
     @Autowired
+    private OtpDispatcher otpDispatcher;
+    @Autowired
     private JwtUtils jwtUtils;
     @Autowired
     private com.petbooking.repository.StudentMasterUploadRepository studentMasterUploadRepository;
@@ -54,8 +56,11 @@ public class AuthService {
         String otp = String.format("%06d", new Random().nextInt(999999));
         otpService.saveOtp("otp:" + request.getEmail(), otp);
 
-        // Mock Send Email
-        System.out.println("OTP for " + request.getEmail() + ": " + otp);
+        // Delivery happens on the dispatcher's workers; the request returns once the OTP is stored
+        if (!otpDispatcher.dispatch(request.getEmail(), otp)) {
+            otpService.deleteOtp("otp:" + request.getEmail());
+            throw new RuntimeException("Too many login requests right now. Please try again in a moment.");
+        }
     }
 
     public String verifyStudentOtp(Dtos.OtpVerificationRequest request) {
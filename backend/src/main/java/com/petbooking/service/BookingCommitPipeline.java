@@ -0,0 +1,305 @@
+package com.petbooking.service;
+
+import com.petbooking.event.QuotaChangedEvent;
+import com.petbooking.exception.BookingException;
+import com.petbooking.exception.BookingException.Reason;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Group-commit pipeline for exam quota bookings.
+ * Validated requests are queued per quota and flushed in micro-batches: one
+ * UPDATE on exam_quotas reserving up to n seats, plus one multi-row INSERT into
+ * bookings. Each caller waits on its own future and gets an individual result.
+ * If a batch fails, its bookings are retried one per transaction so a single bad row
+ * (e.g. a duplicate student) only fails its own caller.
+ */
+@Component
+public class BookingCommitPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingCommitPipeline.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private BookingMetrics bookingMetrics;
+
+    @Value("${booking.pipeline.enabled:false}")
+    private boolean enabled;
+
+    @Value("${booking.pipeline.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${booking.pipeline.timeout-ms:15000}")
+    private long timeoutMs;
+
+    private final ExecutorService workers;
+    private final Map<Long, QuotaQueue> queues = new ConcurrentHashMap<>();
+    private final Set<String> studentsInFlight = ConcurrentHashMap.newKeySet();
+
+    public BookingCommitPipeline(@Value("${booking.pipeline.workers:2}") int workerCount) {
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "booking-pipeline");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static class QueuedBooking {
+        final String rollNo;
+        final Long deptId;
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        QueuedBooking(String rollNo, Long deptId) {
+            this.rollNo = rollNo;
+            this.deptId = deptId;
+        }
+    }
+
+    private static class QuotaQueue {
+        final Long quotaId;
+        final Queue<QueuedBooking> pending = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean draining = new AtomicBoolean(false);
+
+        QuotaQueue(Long quotaId) {
+            this.quotaId = quotaId;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Mark a student as having a booking in flight. Returns false if one is already queued,
+     * so the same student cannot slip two requests into different batches.
+     */
+    public boolean claimStudent(String rollNo) {
+        return studentsInFlight.add(rollNo);
+    }
+
+    public void releaseStudent(String rollNo) {
+        studentsInFlight.remove(rollNo);
+    }
+
+    public boolean isStudentInFlight(String rollNo) {
+        return studentsInFlight.contains(rollNo);
+    }
+
+    /**
+     * Queue a validated booking and wait for the batch it lands in to commit.
+     * Returns the new booking id, or throws if the quota filled up first. If the wait times
+     * out the booking stays queued; should it fail later, onLateFailure gets the cause.
+     */
+    public Long submitAndWait(Long quotaId, String rollNo, Long deptId, Consumer<Throwable> onLateFailure) {
+        QueuedBooking booking = new QueuedBooking(rollNo, deptId);
+        booking.result.whenComplete((id, error) -> releaseStudent(rollNo));
+
+        QuotaQueue queue = queues.computeIfAbsent(quotaId, QuotaQueue::new);
+        queue.pending.add(booking);
+        scheduleDrain(queue);
+
+        try {
+            return booking.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Booking failed. Please try again.", e.getCause());
+        } catch (TimeoutException e) {
+            booking.result.whenComplete((id, error) -> {
+                if (error != null) {
+                    onLateFailure.accept(error);
+                }
+            });
+            throw new BookingException(Reason.TIMEOUT,
+                    "Booking is taking longer than expected. Please check your booking status.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Booking interrupted");
+        }
+    }
+
+    private void scheduleDrain(QuotaQueue queue) {
+        if (queue.draining.compareAndSet(false, true)) {
+            workers.execute(() -> drain(queue));
+        }
+    }
+
+    private void drain(QuotaQueue queue) {
+        try {
+            List<QueuedBooking> batch = new ArrayList<>(maxBatchSize);
+            while (true) {
+                QueuedBooking next;
+                while (batch.size() < maxBatchSize && (next = queue.pending.poll()) != null) {
+                    batch.add(next);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                flush(queue.quotaId, batch);
+                batch.clear();
+            }
+        } finally {
+            queue.draining.set(false);
+            // A request may have been queued after the last poll but before the flag was cleared
+            if (!queue.pending.isEmpty()) {
+                scheduleDrain(queue);
+            }
+        }
+    }
+
+    private void flush(Long quotaId, List<QueuedBooking> batch) {
+        FlushResult flushed;
+        try {
+            flushed = transactionTemplate.execute(status -> {
+                Reservation reservation = reserveSeats(quotaId, batch.size());
+                if (reservation == null) {
+                    return null;
+                }
+                int granted = Math.max(reservation.granted(), 0);
+                if (granted > 0) {
+                    eventPublisher.publishEvent(QuotaChangedEvent.fill(quotaId, reservation.deptCode().trim(),
+                            reservation.categoryType(), reservation.currentFill()));
+                }
+                List<QueuedBooking> admitted = batch.subList(0, granted);
+                return new FlushResult(granted, insertBookings(quotaId, admitted));
+            });
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                log.warn("Booking batch of {} for quota {} failed, retrying one by one: {}", batch.size(), quotaId,
+                        e.getMessage());
+                for (QueuedBooking booking : batch) {
+                    flush(quotaId, List.of(booking));
+                }
+                return;
+            }
+            batch.get(0).result.completeExceptionally(failure(quotaId, batch.get(0), e));
+            return;
+        }
+
+        if (flushed == null) {
+            BookingException refusal = refusal(quotaId);
+            for (QueuedBooking booking : batch) {
+                booking.result.completeExceptionally(new BookingException(refusal.getReason(), refusal.getMessage()));
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            QueuedBooking booking = batch.get(i);
+            if (i < flushed.granted()) {
+                booking.result.complete(flushed.bookingIds().get(booking.rollNo));
+            } else {
+                bookingMetrics.fillConflict(BookingMetrics.PATH_EXAM_QUOTA);
+                booking.result.completeExceptionally(
+                        new BookingException(Reason.FULL, "Slot is full. Please try another."));
+            }
+        }
+    }
+
+    private record FlushResult(int granted, Map<String, Long> bookingIds) {
+    }
+
+    // The student sees a generic message; the cause goes to the log
+    private RuntimeException failure(Long quotaId, QueuedBooking booking, RuntimeException e) {
+        if (e instanceof DuplicateKeyException) {
+            return new BookingException(Reason.DUPLICATE, "You have already booked a slot");
+        }
+        log.error("Booking of quota {} for {} failed", quotaId, booking.rollNo, e);
+        return new RuntimeException("Booking failed. Please try again.");
+    }
+
+    // Why no seats could be reserved at all
+    private BookingException refusal(Long quotaId) {
+        List<Boolean> closed = jdbcTemplate.queryForList(
+                "SELECT COALESCE(is_closed, false) FROM exam_quotas WHERE id = ?", Boolean.class, quotaId);
+        if (closed.isEmpty()) {
+            return new BookingException(Reason.NOT_FOUND, "Quota not found");
+        }
+        if (closed.get(0)) {
+            return new BookingException(Reason.CLOSED, "Booking is closed for this slot");
+        }
+        // Striped while these bookings were queued
+        bookingMetrics.fillConflict(BookingMetrics.PATH_EXAM_QUOTA);
+        return new BookingException(Reason.FULL, "Slot is full. Please try another.");
+    }
+
+    /**
+     * Reserve up to n seats in one statement. The granted count is less than n when the
+     * quota fills up, and the result is null when the quota is closed, missing or was
+     * striped after its bookings were queued.
+     */
+    private Reservation reserveSeats(Long quotaId, int requested) {
+        List<Reservation> rows = jdbcTemplate.query(
+                "UPDATE exam_quotas q " +
+                        "SET current_fill = GREATEST(q.current_fill, LEAST(q.max_count, q.current_fill + ?)) " +
+                        "FROM (SELECT id, current_fill FROM exam_quotas WHERE id = ? FOR UPDATE) old " +
+                        "WHERE q.id = old.id AND (q.is_closed IS NULL OR q.is_closed = false) " +
+                        "AND (q.stripe_count IS NULL OR q.stripe_count <= 1) " +
+                        "RETURNING q.current_fill - old.current_fill AS granted, q.current_fill, q.category_type, " +
+                        "(SELECT d.dept_code FROM departments d WHERE d.dept_id = q.dept_id) AS dept_code",
+                (rs, rowNum) -> new Reservation(rs.getInt("granted"), rs.getInt("current_fill"),
+                        rs.getInt("category_type"), rs.getString("dept_code")),
+                requested, quotaId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private record Reservation(int granted, int currentFill, int categoryType, String deptCode) {
+    }
+
+    private Map<String, Long> insertBookings(Long quotaId, List<QueuedBooking> admitted) {
+        Map<String, Long> ids = new HashMap<>();
+        if (admitted.isEmpty()) {
+            return ids;
+        }
+
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO bookings (roll_no, dept_id, exam_quota_id, booked_at) VALUES ");
+        for (int i = 0; i < admitted.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        sql.append(" RETURNING booking_id, roll_no");
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString());
+            int idx = 1;
+            for (QueuedBooking booking : admitted) {
+                ps.setString(idx++, booking.rollNo);
+                ps.setLong(idx++, booking.deptId);
+                ps.setLong(idx++, quotaId);
+                ps.setTimestamp(idx++, now);
+            }
+            return ps;
+        }, rs -> {
+            ids.put(rs.getString("roll_no"), rs.getLong("booking_id"));
+        });
+        return ids;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
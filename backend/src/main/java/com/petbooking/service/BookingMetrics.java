@@ -0,0 +1,126 @@
+package com.petbooking.service;
+
+import com.petbooking.exception.BookingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Booking meters, published on /actuator/prometheus:
+ *   booking.duration          timer,   tags path, exam, outcome (success | rejected | error)
+ *   booking.succeeded         counter, tags path, exam
+ *   booking.rejected          counter, tags path, exam, reason (BookingException.Reason or "error")
+ *   booking.fill.conflicts    counter, tags path; the conditional increment matched no row
+ *   booking.quota.fill        gauge,   tags exam, quota, dept, category; refreshed on a schedule
+ *   booking.quota.capacity    gauge,   same tags
+ */
+@Component
+public class BookingMetrics {
+
+    public static final String PATH_EXAM_QUOTA = "examQuota";
+    public static final String PATH_EXAM_SLOT = "examSlot";
+    public static final String PATH_LEGACY_SLOT = "legacySlot";
+    public static final String PATH_EXAM_DATE = "examDate";
+
+    // Exam slots and legacy slots are not tied to an exam
+    public static final String NO_EXAM = "none";
+    public static final String UNKNOWN_EXAM = "unknown";
+
+    private final MeterRegistry registry;
+    private final MultiGauge quotaFill;
+    private final MultiGauge quotaCapacity;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public BookingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.quotaFill = MultiGauge.builder("booking.quota.fill")
+                .description("Seats booked per exam quota")
+                .register(registry);
+        this.quotaCapacity = MultiGauge.builder("booking.quota.capacity")
+                .description("Seats offered per exam quota")
+                .register(registry);
+    }
+
+    /**
+     * Run one booking attempt and record its latency and outcome.
+     */
+    public <T> T record(String path, String exam, Supplier<T> booking) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            T result = booking.get();
+            outcome = "success";
+            Counter.builder("booking.succeeded")
+                    .description("Bookings committed")
+                    .tags("path", path, "exam", exam)
+                    .register(registry)
+                    .increment();
+            return result;
+        } catch (BookingException e) {
+            outcome = "rejected";
+            rejected(path, exam, e.getReason().name().toLowerCase());
+            throw e;
+        } catch (RuntimeException e) {
+            rejected(path, exam, "error");
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("booking.duration")
+                    .description("Booking attempts, end to end including commit")
+                    .tags("path", path, "exam", exam, "outcome", outcome)
+                    .register(registry));
+        }
+    }
+
+    /**
+     * The conditional counter UPDATE found the row already at capacity.
+     */
+    public void fillConflict(String path) {
+        Counter.builder("booking.fill.conflicts")
+                .description("Conditional capacity increments that matched no row")
+                .tag("path", path)
+                .register(registry)
+                .increment();
+    }
+
+    private void rejected(String path, String exam, String reason) {
+        Counter.builder("booking.rejected")
+                .description("Booking attempts turned down, by reason")
+                .tags("path", path, "exam", exam, "reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    // ========== Per-quota fill gauges ==========
+
+    @Scheduled(fixedDelayString = "${app.metrics.quota-gauge-refresh-ms:15000}")
+    public void refreshQuotaGauges() {
+        List<MultiGauge.Row<?>> fill = new ArrayList<>();
+        List<MultiGauge.Row<?>> capacity = new ArrayList<>();
+        jdbcTemplate.query(
+                "SELECT q.id, q.exam_id, d.dept_code, q.category_type, q.current_fill, q.max_count " +
+                        "FROM exam_quotas q JOIN departments d ON d.dept_id = q.dept_id",
+                rs -> {
+                    Tags tags = Tags.of("exam", String.valueOf(rs.getLong("exam_id")),
+                            "quota", String.valueOf(rs.getLong("id")),
+                            "dept", rs.getString("dept_code").trim(),
+                            "category", String.valueOf(rs.getInt("category_type")));
+                    fill.add(MultiGauge.Row.of(tags, rs.getInt("current_fill")));
+                    capacity.add(MultiGauge.Row.of(tags, rs.getInt("max_count")));
+                });
+        // overwrite = true drops rows for quotas that no longer exist
+        quotaFill.register(fill, true);
+        quotaCapacity.register(capacity, true);
+    }
+}
@@ -1,10 +1,12 @@
 package com.petbooking.service;
 
 import com.petbooking.entity.*;
+import com.petbooking.exception.BookingException;
+import com.petbooking.exception.BookingException.Reason;
 import com.petbooking.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class BookingService {
@@ -21,62 +23,91 @@ public class BookingService {
     private ExamSlotRepository examSlotRepository;
     @Autowired
     private com.petbooking.repository.ExamQuotaRepository examQuotaRepository;
+    @Autowired
+    private QuotaAdmissionGate admissionGate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private BookingCommitPipeline commitPipeline;
+    @Autowired
+    private org.springframework.context.ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private BookingMetrics bookingMetrics;
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+    @Autowired
+    private SingleStatementBooking singleStatementBooking;
+    @Autowired
+    private QuotaStripeService quotaStripes;
 
     // ========== OLD METHOD (Legacy) ==========
-    @Transactional
+    // Each entry point runs its transaction inside the metrics wrapper so the timer includes the commit
     public Booking bookSlot(String rollNo, Long slotId) {
+        return bookingMetrics.record(BookingMetrics.PATH_LEGACY_SLOT, BookingMetrics.NO_EXAM,
+                () -> transactionTemplate.execute(status -> doBookSlot(rollNo, slotId)));
+    }
+
+    private Booking doBookSlot(String rollNo, Long slotId) {
         // 1. Validate Student
         Student student = studentRepository.findById(rollNo)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+                .orElseThrow(() -> new BookingException(Reason.NOT_FOUND, "Student not found"));
 
         // 2. Validate Slot
         Slot slot = slotRepository.findById(slotId)
-                .orElseThrow(() -> new RuntimeException("Slot not found"));
+                .orElseThrow(() -> new BookingException(Reason.NOT_FOUND, "Slot not found"));
 
         if (!slot.isBookingOpen()) {
-            throw new RuntimeException("Booking is closed for this slot");
+            throw new BookingException(Reason.CLOSED, "Booking is closed for this slot");
         }
 
         if (slot.getCategory() != student.getCategory()) {
-            throw new RuntimeException("Student category mismatch");
+            throw new BookingException(Reason.MISMATCH, "Student category mismatch");
         }
 
         // 3. Check existing booking (Duplicate Check)
         if (bookingRepository.existsByStudentRollNoAndSlotSlotId(rollNo, slotId)) {
-            throw new RuntimeException("You have already booked this slot");
+            throw new BookingException(Reason.DUPLICATE, "You have already booked this slot");
         }
 
-        // 4. Lock Quota Row & Check Availability
-        DeptQuota quota = deptQuotaRepository.findBySlotAndDeptWithLock(slotId, student.getDepartment().getDeptId())
-                .orElseThrow(() -> new RuntimeException("Quota not defined for this department/slot"));
+        // 4. Check Availability (plain read, no lock: a full quota is rejected without queueing)
+        Long deptId = student.getDepartment().getDeptId();
+        DeptQuota quota = deptQuotaRepository.findBySlotSlotIdAndDepartmentDeptId(slotId, deptId)
+                .orElseThrow(() -> new BookingException(Reason.NOT_FOUND,
+                        "Quota not defined for this department/slot"));
 
         if (quota.getBookedCount() >= quota.getQuotaCapacity()) {
-            throw new RuntimeException("Slot full for your department");
+            throw new BookingException(Reason.FULL, "Slot full for your department");
         }
 
-        // 5. Update Quota
-        quota.setBookedCount(quota.getBookedCount() + 1);
-        deptQuotaRepository.save(quota);
-
-        // 6. Create Booking
+        // 5. Create Booking
         Booking booking = new Booking();
         booking.setStudent(student);
         booking.setSlot(slot);
         booking.setDepartment(student.getDepartment());
+        Booking saved = bookingRepository.save(booking);
 
-        return bookingRepository.save(booking);
+        // 6. Atomic increment, last, so the quota row is locked only from here to commit
+        if (deptQuotaRepository.incrementBookedCount(slotId, deptId) == 0) {
+            bookingMetrics.fillConflict(BookingMetrics.PATH_LEGACY_SLOT);
+            throw new BookingException(Reason.FULL, "Slot full for your department");
+        }
+        return saved;
     }
 
     // ========== NEW METHOD: Atomic Exam Slot Booking ==========
-    @Transactional
     public Booking bookExamSlot(String rollNo, Integer examSlotId) {
+        return bookingMetrics.record(BookingMetrics.PATH_EXAM_SLOT, BookingMetrics.NO_EXAM,
+                () -> transactionTemplate.execute(status -> doBookExamSlot(rollNo, examSlotId)));
+    }
+
+    private Booking doBookExamSlot(String rollNo, Integer examSlotId) {
         // 1. Validate Student
         Student student = studentRepository.findById(rollNo)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+                .orElseThrow(() -> new BookingException(Reason.NOT_FOUND, "Student not found"));
 
         // 2. Check if student already has a booking
         if (bookingRepository.existsByStudentRollNo(rollNo)) {
-            throw new RuntimeException("You have already booked a slot");
+            throw new BookingException(Reason.DUPLICATE, "You have already booked a slot");
         }
 
         // 3. Get student's type and gender for validation
@@ -87,23 +118,24 @@ public class BookingService {
 
         // 4. Get the slot
         ExamSlot slot = examSlotRepository.findById(examSlotId)
-                .orElseThrow(() -> new RuntimeException("Exam slot not found"));
+                .orElseThrow(() -> new BookingException(Reason.NOT_FOUND, "Exam slot not found"));
 
         // 5. Validate slot matches student profile
         if (!slot.getStudentType().equals(studentType)) {
-            throw new RuntimeException("This slot is not for your student type");
+            throw new BookingException(Reason.MISMATCH, "This slot is not for your student type");
         }
         if (!slot.getDepartment().equals(dept)) {
-            throw new RuntimeException("This slot is not for your department");
+            throw new BookingException(Reason.MISMATCH, "This slot is not for your department");
         }
         if (!"ANY".equals(slot.getGender()) && !slot.getGender().equals(gender)) {
-            throw new RuntimeException("This slot is not for your gender");
+            throw new BookingException(Reason.MISMATCH, "This slot is not for your gender");
         }
 
         // 6. Atomic increment (CRITICAL - Race condition safe)
         int updated = examSlotRepository.incrementBookedCount(examSlotId);
         if (updated == 0) {
-            throw new RuntimeException("Slot is full. Please choose another slot.");
+            bookingMetrics.fillConflict(BookingMetrics.PATH_EXAM_SLOT);
+            throw new BookingException(Reason.FULL, "Slot is full. Please choose another slot.");
         }
 
         // 7. Create Booking (new style - using student_id and exam_slot_id)
@@ -116,81 +148,269 @@ public class BookingService {
         return bookingRepository.save(booking);
     }
 
+    // ========== Date-choice booking on the seat inventory ==========
+    // The student picks a date; one free seat of their dept/category on that date is claimed
+    public com.petbooking.dto.ExamDtos.SlotBookingResponse bookExamDate(String rollNo,
+            com.petbooking.dto.ExamDtos.SlotBookingRequest request) {
+        return bookingMetrics.record(BookingMetrics.PATH_EXAM_DATE, String.valueOf(request.getExamId()),
+                () -> transactionTemplate.execute(status -> doBookExamDate(rollNo, request)));
+    }
+
+    private com.petbooking.dto.ExamDtos.SlotBookingResponse doBookExamDate(String rollNo,
+            com.petbooking.dto.ExamDtos.SlotBookingRequest request) {
+        Student student = studentRepository.findById(rollNo)
+                .orElseThrow(() -> new BookingException(Reason.NOT_FOUND, "Student not found"));
+
+        Long seatId = seatInventoryService.claimSeat(request.getExamId(), student.getDepartment().getDeptId(),
+                categoryTypeOf(student), request.getPreferredDate(), rollNo);
+
+        return new com.petbooking.dto.ExamDtos.SlotBookingResponse(seatId, request.getPreferredDate(), "BOOKED",
+                "Booking successful!");
+    }
+
     // ========== NEW METHOD: Book via Exam Quota ==========
-    @Transactional
+    // Requests must hold an admission permit before they reach the database.
+    // The permit is settled if the booking fails (see Permit.bookingFailed); on a pipeline
+    // TIMEOUT the booking may still commit, so the pipeline settles it once the batch does.
+    // The exam tag comes from the gate's seeded counter, so a warm quota costs no query here.
     public java.util.Map<String, Object> bookExamQuota(String rollNo, Long quotaId) {
+        String exam = admissionGate.examOf(quotaId);
+        return bookingMetrics.record(BookingMetrics.PATH_EXAM_QUOTA,
+                exam != null ? exam : BookingMetrics.UNKNOWN_EXAM,
+                () -> admitAndBookExamQuota(rollNo, quotaId));
+    }
+
+    private java.util.Map<String, Object> admitAndBookExamQuota(String rollNo, Long quotaId) {
+        QuotaAdmissionGate.Permit permit = admissionGate.acquire(quotaId);
+        try {
+            if (commitPipeline.isEnabled()) {
+                return bookExamQuotaBatched(rollNo, quotaId, permit);
+            }
+            if (singleStatementBooking.isAvailable()) {
+                return bookExamQuotaInOneStatement(rollNo, quotaId);
+            }
+            return transactionTemplate.execute(status -> doBookExamQuota(rollNo, quotaId));
+        } catch (BookingException e) {
+            if (e.getReason() != Reason.TIMEOUT) {
+                permit.bookingFailed(e);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+    }
+
+    private java.util.Map<String, Object> doBookExamQuota(String rollNo, Long quotaId) {
+        ValidatedQuotaBooking validated = validateExamQuotaBooking(rollNo, quotaId);
+        com.petbooking.entity.ExamQuota quota = validated.quota();
+        if (quota.getStripeCount() > 1) {
+            return bookStripedQuota(rollNo, quotaId, validated);
+        }
+
+        // 8. Atomic increment (race-condition safe; matches nothing once the quota is striped)
+        int updated = examQuotaRepository.incrementCurrentFill(
+                quota.getExam().getExamId(),
+                quota.getDepartment().getDeptId(),
+                quota.getCategoryType());
+        if (updated == 0) {
+            bookingMetrics.fillConflict(BookingMetrics.PATH_EXAM_QUOTA);
+            throw new BookingException(Reason.FULL, "Slot is full. Please try another.");
+        }
+        // Delivered after commit to refresh cached availability
+        eventPublisher.publishEvent(com.petbooking.event.QuotaChangedEvent.fill(quotaId, validated.deptCode(),
+                validated.categoryType(), examQuotaRepository.findCurrentFillById(quotaId)));
+
+        // 9. Create Booking record
+        Booking booking = new Booking();
+        booking.setStudent(validated.student());
+        booking.setDepartment(validated.student().getDepartment());
+        booking.setExamQuotaId(quotaId); // Store reference to exam quota
+        Booking saved = bookingRepository.save(booking);
+
+        // 10. Return booking confirmation data
+        return bookingResult(saved.getBookingId(), rollNo, validated);
+    }
+
+    // Striped quotas (stripe_count > 1, as read in this transaction): the seat is taken from
+    // one of the quota's sub-counter rows, so concurrent bookings of a hot quota rarely wait
+    // on the same row lock. Every other path re-checks stripe_count in its increment.
+    private java.util.Map<String, Object> bookStripedQuota(String rollNo, Long quotaId,
+            ValidatedQuotaBooking validated) {
+        Integer fill = quotaStripes.claim(quotaId, validated.quota().getStripeCount());
+        if (fill == null) {
+            bookingMetrics.fillConflict(BookingMetrics.PATH_EXAM_QUOTA);
+            throw new BookingException(Reason.FULL, "Slot is full. Please try another.");
+        }
+        eventPublisher.publishEvent(com.petbooking.event.QuotaChangedEvent.fill(quotaId, validated.deptCode(),
+                validated.categoryType(), fill));
+
+        Booking booking = new Booking();
+        booking.setStudent(validated.student());
+        booking.setDepartment(validated.student().getDepartment());
+        booking.setExamQuotaId(quotaId);
+        Booking saved = bookingRepository.save(booking);
+        return bookingResult(saved.getBookingId(), rollNo, validated);
+    }
+
+    // Single-statement variant (PostgreSQL): validation, conditional increment, insert and
+    // duplicate check in one round trip. The transaction shares the request's JPA connection
+    // (open-in-view may already hold one) and undoes the increment when a same-student race is lost.
+    private java.util.Map<String, Object> bookExamQuotaInOneStatement(String rollNo, Long quotaId) {
+        SingleStatementBooking.Outcome outcome = transactionTemplate.execute(status -> {
+            SingleStatementBooking.Outcome result = singleStatementBooking.book(rollNo, quotaId);
+            if ("DUPLICATE_RACE".equals(result.code())) {
+                status.setRollbackOnly();
+            }
+            return result;
+        });
+        switch (outcome.code()) {
+            case "BOOKED":
+                String deptCode = outcome.deptCode().trim(); // CHAR(10) column
+                eventPublisher.publishEvent(com.petbooking.event.QuotaChangedEvent.fill(quotaId,
+                        deptCode, outcome.categoryType(), outcome.currentFill()));
+                return bookingResult(outcome.bookingId(), rollNo, outcome.examName(), outcome.examDate(),
+                        deptCode, outcome.categoryType());
+            case "NO_STUDENT":
+                throw new BookingException(Reason.NOT_FOUND, "Student not found");
+            case "DUPLICATE":
+            case "DUPLICATE_RACE":
+                throw new BookingException(Reason.DUPLICATE, "You have already booked a slot");
+            case "NO_QUOTA":
+                throw new BookingException(Reason.NOT_FOUND, "Quota not found");
+            case "STRIPED":
+                return transactionTemplate.execute(status -> doBookExamQuota(rollNo, quotaId));
+            case "CLOSED":
+                throw new BookingException(Reason.CLOSED, "Booking is closed for this slot");
+            case "FULL":
+                throw new BookingException(Reason.FULL, "No slots available - quota is full");
+            case "CATEGORY_MISMATCH":
+                throw new BookingException(Reason.MISMATCH, "This slot is not for your category");
+            case "DEPT_MISMATCH":
+                throw new BookingException(Reason.MISMATCH, "This slot is not for your department");
+            default:
+                bookingMetrics.fillConflict(BookingMetrics.PATH_EXAM_QUOTA);
+                throw new BookingException(Reason.FULL, "Slot is full. Please try another.");
+        }
+    }
+
+    // Group-commit variant: validate in a short transaction, then let the pipeline
+    // reserve the seat and insert the booking together with other queued requests.
+    private java.util.Map<String, Object> bookExamQuotaBatched(String rollNo, Long quotaId,
+            QuotaAdmissionGate.Permit permit) {
+        if (!commitPipeline.claimStudent(rollNo)) {
+            throw new BookingException(Reason.DUPLICATE, "You have already booked a slot");
+        }
+
+        ValidatedQuotaBooking validated;
+        try {
+            validated = transactionTemplate.execute(status -> validateExamQuotaBooking(rollNo, quotaId));
+        } catch (RuntimeException e) {
+            commitPipeline.releaseStudent(rollNo);
+            throw e;
+        }
+        if (validated.quota().getStripeCount() > 1) {
+            // The pipeline batches increments of the single counter; striped quotas book directly
+            commitPipeline.releaseStudent(rollNo);
+            return transactionTemplate.execute(status -> doBookExamQuota(rollNo, quotaId));
+        }
+
+        Long bookingId = commitPipeline.submitAndWait(quotaId, rollNo, validated.deptId(), permit::bookingFailed);
+        return bookingResult(bookingId, rollNo, validated);
+    }
+
+    /**
+     * The student's booking in this quota, answered as a new booking would be; null if there
+     * is none. Throws TIMEOUT while the student still has a booking queued in the pipeline.
+     * Settles retries of a request whose pipeline wait timed out.
+     */
+    public java.util.Map<String, Object> findExamQuotaBooking(String rollNo, Long quotaId) {
+        if (commitPipeline.isEnabled() && commitPipeline.isStudentInFlight(rollNo)) {
+            throw new BookingException(Reason.TIMEOUT,
+                    "Booking is taking longer than expected. Please check your booking status.");
+        }
+        return bookingRepository.findByStudentRollNoAndExamQuotaId(rollNo, quotaId)
+                .map(booking -> {
+                    com.petbooking.entity.ExamQuota quota = booking.getExamQuota();
+                    return bookingResult(booking.getBookingId(), rollNo, quota.getExam().getExamName(),
+                            quota.getExam().getStartingDate(), quota.getDepartment().getDeptCode(),
+                            quota.getCategoryType());
+                })
+                .orElse(null);
+    }
+
+    private record ValidatedQuotaBooking(Student student, com.petbooking.entity.ExamQuota quota,
+            Long deptId, String deptCode, Integer categoryType) {
+    }
+
+    private ValidatedQuotaBooking validateExamQuotaBooking(String rollNo, Long quotaId) {
         // 1. Validate Student
         Student student = studentRepository.findById(rollNo)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+                .orElseThrow(() -> new BookingException(Reason.NOT_FOUND, "Student not found"));
 
         // 2. Check if student already has a booking for any exam
         if (bookingRepository.existsByStudentRollNo(rollNo)) {
-            throw new RuntimeException("You have already booked a slot");
+            throw new BookingException(Reason.DUPLICATE, "You have already booked a slot");
         }
 
         // 3. Get the quota
         com.petbooking.entity.ExamQuota quota = examQuotaRepository.findById(quotaId)
-                .orElseThrow(() -> new RuntimeException("Quota not found"));
+                .orElseThrow(() -> new BookingException(Reason.NOT_FOUND, "Quota not found"));
 
         // 4. Check if quota is closed
         if (quota.getIsClosed() != null && quota.getIsClosed()) {
-            throw new RuntimeException("Booking is closed for this slot");
+            throw new BookingException(Reason.CLOSED, "Booking is closed for this slot");
         }
 
         // 5. Check if quota is full
         if (quota.getCurrentFill() >= quota.getMaxCount()) {
-            throw new RuntimeException("No slots available - quota is full");
+            throw new BookingException(Reason.FULL, "No slots available - quota is full");
         }
 
         // 6. Map student category to categoryType
-        Integer studentCategoryType;
-        switch (student.getCategory()) {
-            case DAY:
-                studentCategoryType = 1;
-                break;
-            case HOSTEL_MALE:
-                studentCategoryType = 2;
-                break;
-            case HOSTEL_FEMALE:
-                studentCategoryType = 3;
-                break;
-            default:
-                studentCategoryType = 1;
-        }
+        Integer studentCategoryType = categoryTypeOf(student);
 
         // 7. Validate quota matches student profile
         if (!quota.getCategoryType().equals(studentCategoryType)) {
-            throw new RuntimeException("This slot is not for your category");
+            throw new BookingException(Reason.MISMATCH, "This slot is not for your category");
         }
         if (!quota.getDepartment().getDeptCode().equalsIgnoreCase(student.getDepartment().getDeptCode())) {
-            throw new RuntimeException("This slot is not for your department");
+            throw new BookingException(Reason.MISMATCH, "This slot is not for your department");
         }
 
-        // 8. Atomic increment (race-condition safe)
-        int updated = examQuotaRepository.incrementCurrentFill(
-                quota.getExam().getExamId(),
-                quota.getDepartment().getDeptId(),
-                quota.getCategoryType());
-        if (updated == 0) {
-            throw new RuntimeException("Slot is full. Please try another.");
+        return new ValidatedQuotaBooking(student, quota, student.getDepartment().getDeptId(),
+                student.getDepartment().getDeptCode(), studentCategoryType);
+    }
+
+    // 1=Day, 2=HostelM, 3=HostelF, as stored on exam quotas and seats
+    private static int categoryTypeOf(Student student) {
+        switch (student.getCategory()) {
+            case HOSTEL_MALE:
+                return 2;
+            case HOSTEL_FEMALE:
+                return 3;
+            case DAY:
+            default:
+                return 1;
         }
+    }
 
-        // 9. Create Booking record
-        Booking booking = new Booking();
-        booking.setStudent(student);
-        booking.setDepartment(student.getDepartment());
-        booking.setExamQuotaId(quotaId); // Store reference to exam quota
-        Booking saved = bookingRepository.save(booking);
+    private java.util.Map<String, Object> bookingResult(Long bookingId, String rollNo,
+            ValidatedQuotaBooking validated) {
+        return bookingResult(bookingId, rollNo, validated.quota().getExam().getExamName(),
+                validated.quota().getExam().getStartingDate(), validated.deptCode(), validated.categoryType());
+    }
 
-        // 10. Return booking confirmation data
+    private java.util.Map<String, Object> bookingResult(Long bookingId, String rollNo, String examName,
+            java.time.LocalDate examDate, String deptCode, Integer categoryType) {
         var result = new java.util.HashMap<String, Object>();
-        result.put("bookingId", saved.getBookingId());
+        result.put("bookingId", bookingId);
         result.put("rollNo", rollNo);
-        result.put("examName", quota.getExam().getExamName());
-        result.put("examDate", quota.getExam().getStartingDate().toString());
-        result.put("department", student.getDepartment().getDeptCode());
+        result.put("examName", examName);
+        result.put("examDate", examDate.toString());
+        result.put("department", deptCode);
         result.put("category",
-                studentCategoryType == 1 ? "Day Scholar" : studentCategoryType == 2 ? "Hostel Boys" : "Hostel Girls");
+                categoryType == 1 ? "Day Scholar" : categoryType == 2 ? "Hostel Boys" : "Hostel Girls");
         result.put("message", "Booking successful!");
 
         return result;
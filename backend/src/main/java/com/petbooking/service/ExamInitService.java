@@ -1,8 +1,13 @@
 package com.petbooking.service;
 
+import com.petbooking.allocation.AllocationPlan;
+import com.petbooking.allocation.AllocationRequest;
+import com.petbooking.allocation.SlotAllocatorRegistry;
 import com.petbooking.dto.ExamDtos.*;
 import com.petbooking.entity.*;
 import com.petbooking.repository.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,11 +22,21 @@ public class ExamInitService {
     @Autowired
     private ExamRepository examRepository;
     @Autowired
-    private ExamSlotSeatRepository slotSeatRepository;
-    @Autowired
     private ExamQuotaRepository quotaRepository;
     @Autowired
     private DepartmentRepository departmentRepository;
+    @Autowired
+    private QuotaAdmissionGate admissionGate;
+    @Autowired
+    private org.springframework.context.ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+    @Autowired
+    private QuotaStripeService quotaStripes;
+    @Autowired
+    private SlotAllocatorRegistry allocators;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     /**
      * Initialize an Exam with Slot Inventory and Departmental Quotas.
@@ -29,6 +44,19 @@ public class ExamInitService {
      */
     @Transactional
     public ExamInitResponse initializeExam(ExamInitRequest request) {
+        // exam.init.duration{outcome}; the commit itself is not included
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ExamInitResponse response = createExam(request);
+            outcome = "success";
+            return response;
+        } finally {
+            sample.stop(meterRegistry.timer("exam.init.duration", "outcome", outcome));
+        }
+    }
+
+    private ExamInitResponse createExam(ExamInitRequest request) {
         // ============ STEP A: Create Exam Entry ============
         Exam exam = new Exam();
         exam.setExamName(request.getExamName());
@@ -54,81 +82,25 @@ public class ExamInitService {
         int totalSlotsGenerated = 0;
         int quotasCreated = 0;
 
-        // ============ STEP B: Generate Slot Inventory ============
-        // For each department category, create individual seat records
-        List<ExamSlotSeat> allSlots = new ArrayList<>();
+        // ============ STEP B: Plan Slot Inventory ============
+        // Exam days run from the start date, bounded by both totalDays and the end date
+        int examDays = (int) Math.max(1, Math.min(request.getTotalDays(),
+                java.time.temporal.ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1));
+
+        // One allocation group per department category; the seats are spread after the loop
+        List<AllocationRequest.Demand> demands = new ArrayList<>();
+        List<long[]> demandGroups = new ArrayList<>(); // [deptId, categoryType]
 
         for (DeptCategoryCount deptCat : request.getDeptCategories()) {
             Department dept = departmentRepository.findById(deptCat.getDeptId())
                     .orElseThrow(() -> new RuntimeException("Department not found: " + deptCat.getDeptId()));
 
-            // Calculate slots per day for each category
-            int dayScholarPerDay = deptCat.getDayScholarCount() / request.getTotalDays();
-            int dayScholarRemainder = deptCat.getDayScholarCount() % request.getTotalDays();
-
-            int hostelBoysPerDay = deptCat.getHostellerBoysCount() / request.getTotalDays();
-            int hostelBoysRemainder = deptCat.getHostellerBoysCount() % request.getTotalDays();
-
-            int hostelGirlsPerDay = deptCat.getHostellerGirlsCount() / request.getTotalDays();
-            int hostelGirlsRemainder = deptCat.getHostellerGirlsCount() % request.getTotalDays();
-
-            // Iterate through each exam day
-            LocalDate currentDate = request.getStartDate();
-            int dayIndex = 0;
-
-            while (!currentDate.isAfter(request.getEndDate()) && dayIndex < request.getTotalDays()) {
-                boolean isLastDay = (dayIndex == request.getTotalDays() - 1);
-
-                // Day Scholars (Category 1)
-                int daySlotsToday = dayScholarPerDay;
-                if (isLastDay) {
-                    daySlotsToday += dayScholarRemainder;
-                }
-
-                for (int i = 0; i < daySlotsToday; i++) {
-                    ExamSlotSeat slot = new ExamSlotSeat();
-                    slot.setExam(exam);
-                    slot.setSlotDate(currentDate);
-                    slot.setDepartment(dept);
-                    slot.setCategoryType(1); // Day Scholar
-                    slot.setStatus("AVAILABLE");
-                    allSlots.add(slot);
-                }
-
-                // Hostel Boys (Category 2)
-                int hostelBoysSlotsToday = hostelBoysPerDay;
-                if (isLastDay) {
-                    hostelBoysSlotsToday += hostelBoysRemainder;
-                }
-
-                for (int i = 0; i < hostelBoysSlotsToday; i++) {
-                    ExamSlotSeat slot = new ExamSlotSeat();
-                    slot.setExam(exam);
-                    slot.setSlotDate(currentDate);
-                    slot.setDepartment(dept);
-                    slot.setCategoryType(2); // Hostel Boys
-                    slot.setStatus("AVAILABLE");
-                    allSlots.add(slot);
-                }
-
-                // Hostel Girls (Category 3)
-                int hostelGirlsSlotsToday = hostelGirlsPerDay;
-                if (isLastDay) {
-                    hostelGirlsSlotsToday += hostelGirlsRemainder;
-                }
-
-                for (int i = 0; i < hostelGirlsSlotsToday; i++) {
-                    ExamSlotSeat slot = new ExamSlotSeat();
-                    slot.setExam(exam);
-                    slot.setSlotDate(currentDate);
-                    slot.setDepartment(dept);
-                    slot.setCategoryType(3); // Hostel Girls
-                    slot.setStatus("AVAILABLE");
-                    allSlots.add(slot);
-                }
-
-                currentDate = currentDate.plusDays(1);
-                dayIndex++;
+            // Day Scholars (Category 1), Hostel Boys (Category 2), Hostel Girls (Category 3)
+            int[] counts = { deptCat.getDayScholarCount(), deptCat.getHostellerBoysCount(),
+                    deptCat.getHostellerGirlsCount() };
+            for (int cat = 1; cat <= 3; cat++) {
+                demands.add(new AllocationRequest.Demand(dept.getDeptCode() + "|" + cat, counts[cat - 1]));
+                demandGroups.add(new long[] { dept.getDeptId(), cat });
             }
 
             // ============ STEP C: Create Quota Entries ============
@@ -139,7 +111,11 @@ public class ExamInitService {
             dayQuota.setCategoryType(1);
             dayQuota.setMaxCount(deptCat.getDayScholarCount());
             dayQuota.setCurrentFill(0);
+            dayQuota.setStripeCount(quotaStripes.defaultStripeCount());
             quotaRepository.save(dayQuota);
+            if (dayQuota.getStripeCount() > 1) {
+                quotaStripes.restripe(dayQuota.getId());
+            }
             quotasCreated++;
 
             // Hostel Boys Quota
@@ -149,7 +125,11 @@ public class ExamInitService {
             hostelBoysQuota.setCategoryType(2);
             hostelBoysQuota.setMaxCount(deptCat.getHostellerBoysCount());
             hostelBoysQuota.setCurrentFill(0);
+            hostelBoysQuota.setStripeCount(quotaStripes.defaultStripeCount());
             quotaRepository.save(hostelBoysQuota);
+            if (hostelBoysQuota.getStripeCount() > 1) {
+                quotaStripes.restripe(hostelBoysQuota.getId());
+            }
             quotasCreated++;
 
             // Hostel Girls Quota
@@ -159,13 +139,36 @@ public class ExamInitService {
             hostelGirlsQuota.setCategoryType(3);
             hostelGirlsQuota.setMaxCount(deptCat.getHostellerGirlsCount());
             hostelGirlsQuota.setCurrentFill(0);
+            hostelGirlsQuota.setStripeCount(quotaStripes.defaultStripeCount());
             quotaRepository.save(hostelGirlsQuota);
+            if (hostelGirlsQuota.getStripeCount() > 1) {
+                quotaStripes.restripe(hostelGirlsQuota.getId());
+            }
             quotasCreated++;
         }
 
+        // ============ STEP D: Spread seats over days and write the inventory ============
+        AllocationPlan plan = allocators.active().allocate(new AllocationRequest(examDays,
+                valueOrZero(request.getSystemsPerSession()), valueOrZero(request.getSessionsPerDay()),
+                valueOrZero(request.getLabCapacityPerDay()), demands));
+
+        List<SeatInventoryService.SeatRun> seatRuns = new ArrayList<>();
+        for (int g = 0; g < demandGroups.size(); g++) {
+            long[] group = demandGroups.get(g);
+            for (int day = 0; day < examDays; day++) {
+                addSeatRun(seatRuns, request.getStartDate().plusDays(day), group[0], (int) group[1],
+                        plan.seats()[g][day]);
+            }
+        }
+
         // Bulk insert all slots for performance
-        slotSeatRepository.saveAll(allSlots);
-        totalSlotsGenerated = allSlots.size();
+        String inventoryMode = seatInventoryService.isCompact() ? "compact" : "seats";
+        totalSlotsGenerated = meterRegistry.timer("exam.init.seat.generation", "mode", inventoryMode)
+                .record(() -> seatInventoryService.generate(examId, seatRuns));
+        meterRegistry.counter("exam.init.seats", "mode", inventoryMode).increment(totalSlotsGenerated);
+
+        // New quotas become visible to students once this transaction commits
+        eventPublisher.publishEvent(com.petbooking.event.QuotaChangedEvent.all());
 
         // ============ Return Summary ============
         ExamInitResponse response = new ExamInitResponse();
@@ -178,6 +181,17 @@ public class ExamInitService {
         return response;
     }
 
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private void addSeatRun(List<SeatInventoryService.SeatRun> runs, LocalDate date, Long deptId,
+            int categoryType, int seatCount) {
+        if (seatCount > 0) {
+            runs.add(new SeatInventoryService.SeatRun(date, deptId, categoryType, seatCount));
+        }
+    }
+
     /**
      * Get all exams
      */
@@ -193,6 +207,13 @@ public class ExamInitService {
                 .orElseThrow(() -> new RuntimeException("Exam not found: " + examId));
     }
 
+    /**
+     * Total seats generated for an exam
+     */
+    public long countSeats(Long examId) {
+        return seatInventoryService.countSeats(examId);
+    }
+
     /**
      * Get quotas for an exam
      */
@@ -210,7 +231,8 @@ public class ExamInitService {
         }
 
         // Delete related data first
-        slotSeatRepository.deleteByExamExamId(examId);
+        seatInventoryService.deleteForExam(examId);
+        quotaStripes.deleteForExam(examId);
         quotaRepository.deleteByExamExamId(examId);
 
         // Delete slots table entries if any (legacy check)
@@ -219,5 +241,9 @@ public class ExamInitService {
 
         // Delete the exam
         examRepository.deleteById(examId);
+
+        // Drop cached admission counters and availability for the removed quotas
+        admissionGate.invalidateAll();
+        eventPublisher.publishEvent(com.petbooking.event.QuotaChangedEvent.all());
     }
 }
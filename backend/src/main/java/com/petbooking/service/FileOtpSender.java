@@ -0,0 +1,40 @@
+package com.petbooking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Test sink: appends one line per OTP (timestamp, email, otp) to app.otp.sender.file,
+ * so load tests and scripts can read the codes back.
+ */
+@Component
+@ConditionalOnProperty(name = "app.otp.sender", havingValue = "file")
+public class FileOtpSender implements OtpSender {
+
+    @Value("${app.otp.sender.file:otp-outbox.log}")
+    private Path file;
+
+    @Override
+    public synchronized void send(List<OtpMessage> batch) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        String now = LocalDateTime.now().toString();
+        for (OtpMessage message : batch) {
+            lines.append(now).append('\t').append(message.email()).append('\t').append(message.otp()).append('\n');
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.writeString(file, lines, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
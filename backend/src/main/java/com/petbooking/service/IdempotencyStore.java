@@ -0,0 +1,257 @@
+package com.petbooking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Results of requests sent with an Idempotency-Key, kept in memory so that a client
+ * retrying the same request gets the first answer back instead of a second execution.
+ * A duplicate that arrives while the first execution is still running waits for it
+ * (up to app.idempotency.wait-timeout-ms) and receives the same result.
+ *
+ * Only results are remembered: if the action throws, the key is released and the
+ * exception is handed to any waiting duplicates, so a later retry runs again. The
+ * exception is when the caller marks the failure as outcome unknown (the action may still
+ * take effect): then the key is kept, and a retry first asks the caller's recover
+ * function for the result, running the action again only if there is none. Completed
+ * entries live for app.idempotency.ttl-seconds; the map is capped at
+ * app.idempotency.max-entries, evicting expired entries and then the completed entries
+ * closest to expiry. With only in-flight entries left, requests run unrecorded.
+ *
+ * Meters: idempotency.requests{outcome = executed | replayed | coalesced | recovered |
+ * key_reused | in_progress | unrecorded}, idempotency.store.size, idempotency.store.evictions{cause}.
+ */
+@Component
+public class IdempotencyStore {
+
+    /**
+     * The key was already used by this caller for a different request.
+     */
+    public static class KeyReusedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public KeyReusedException() {
+            super("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    /**
+     * The first request with this key is still running after the wait timeout.
+     */
+    public static class InProgressException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public InProgressException() {
+            super("A request with this Idempotency-Key is still in progress");
+        }
+    }
+
+    private static final long IN_FLIGHT = Long.MAX_VALUE;
+
+    @Value("${app.idempotency.max-entries:50000}")
+    private int maxEntries;
+
+    @Value("${app.idempotency.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${app.idempotency.wait-timeout-ms:15000}")
+    private long waitTimeoutMs;
+
+    private static final class Entry {
+        final String fingerprint;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        volatile long expiresAt = IN_FLIGHT;
+        // The action failed in a way that may still have taken effect
+        volatile boolean outcomeUnknown;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final MeterRegistry registry;
+
+    public IdempotencyStore(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("idempotency.store.size", entries, Map::size)
+                .description("Idempotency keys held, completed and in flight")
+                .register(registry);
+    }
+
+    /**
+     * Run action once per (scope, key): the first call executes it, later calls with the
+     * same scope, key and fingerprint return its result (or wait for it). Scope is the
+     * caller's identity so keys cannot collide across users; fingerprint identifies the
+     * request payload.
+     */
+    public <T> T execute(String scope, String key, String fingerprint, Supplier<T> action) {
+        return execute(scope, key, fingerprint, action, e -> false, () -> null);
+    }
+
+    /**
+     * As above, but a failure matching outcomeUnknown keeps the key. A retry then calls
+     * recover, which returns the result the first execution turned out to have, null if it
+     * had none (the action runs again), or throws if it is still undecided.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String scope, String key, String fingerprint, Supplier<T> action,
+            Predicate<RuntimeException> outcomeUnknown, Supplier<T> recover) {
+        String id = scope + '\n' + key;
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxEntries && !entries.containsKey(id)) {
+            makeRoom(now);
+            if (entries.size() >= maxEntries) {
+                count("unrecorded");
+                return action.get();
+            }
+        }
+
+        Entry mine = new Entry(fingerprint);
+        Entry existing = entries.putIfAbsent(id, mine);
+        while (existing != null) {
+            if (existing.expiresAt < now) {
+                entries.remove(id, existing);
+            } else if (existing.outcomeUnknown && existing.fingerprint.equals(fingerprint)) {
+                T recovered = recover.get();
+                if (recovered != null) {
+                    Entry settled = new Entry(fingerprint);
+                    settled.expiresAt = existing.expiresAt;
+                    settled.result.complete(recovered);
+                    entries.replace(id, existing, settled);
+                    count("recovered");
+                    return recovered;
+                }
+                entries.remove(id, existing);
+            } else {
+                return (T) await(existing, fingerprint);
+            }
+            existing = entries.putIfAbsent(id, mine);
+        }
+
+        T value;
+        try {
+            value = action.get();
+        } catch (RuntimeException e) {
+            if (outcomeUnknown.test(e)) {
+                // Kept, and swept like a completed entry once the TTL passes
+                mine.outcomeUnknown = true;
+                mine.expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds);
+            } else {
+                entries.remove(id, mine);
+            }
+            mine.result.completeExceptionally(e);
+            throw e;
+        } catch (Error e) {
+            entries.remove(id, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+        mine.expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds);
+        mine.result.complete(value);
+        count("executed");
+        return value;
+    }
+
+    private Object await(Entry existing, String fingerprint) {
+        if (!existing.fingerprint.equals(fingerprint)) {
+            count("key_reused");
+            throw new KeyReusedException();
+        }
+        if (existing.result.isDone()) {
+            count("replayed");
+        } else {
+            count("coalesced");
+        }
+        try {
+            return existing.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            count("in_progress");
+            throw new InProgressException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InProgressException();
+        } catch (ExecutionException e) {
+            // The first execution failed; its caller sees the same exception
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    // ========== Expiry and capacity ==========
+
+    @Scheduled(fixedDelayString = "${app.idempotency.sweep-ms:30000}")
+    public void sweepExpired() {
+        evicted("expired", removeExpired(System.currentTimeMillis()));
+    }
+
+    private int removeExpired(long now) {
+        int removed = 0;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().expiresAt < now && entries.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private synchronized void makeRoom(long now) {
+        if (entries.size() < maxEntries) {
+            return; // another caller already made room
+        }
+        evicted("expired", removeExpired(now));
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        // In-flight entries are never evicted: their waiters need the result
+        int excess = entries.size() - maxEntries + Math.max(maxEntries / 10, 1);
+        int[] removed = new int[1];
+        entries.entrySet().stream()
+                .filter(entry -> entry.getValue().expiresAt != IN_FLIGHT)
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().expiresAt))
+                .limit(excess)
+                .forEach(entry -> {
+                    if (entries.remove(entry.getKey(), entry.getValue())) {
+                        removed[0]++;
+                    }
+                });
+        evicted("capacity", removed[0]);
+    }
+
+    private void count(String outcome) {
+        Counter.builder("idempotency.requests")
+                .description("Requests carrying an Idempotency-Key, by how they were answered")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    private void evicted(String cause, int count) {
+        if (count > 0) {
+            Counter.builder("idempotency.store.evictions")
+                    .description("Idempotency entries removed before being replayed again")
+                    .tag("cause", cause)
+                    .register(registry)
+                    .increment(count);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.petbooking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * OtpStore on two ConcurrentHashMaps. Expired entries are removed by a scheduled sweep
+ * (app.otp.store.sweep-ms) instead of waiting for the same key to be read again, and each
+ * map is capped: when a write finds it full, expired entries go first, then the entries
+ * closest to expiry (a tenth of the cap at a time, so the scan is amortized).
+ *
+ * Meters: otp.store.size{map}, otp.store.evictions{map, cause = expired | capacity}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOtpStore implements OtpStore {
+
+    private static final String OTP_MAP = "otp";
+    private static final String RATE_MAP = "rate";
+
+    @Value("${app.otp.store.max-otps:50000}")
+    private int maxOtps;
+
+    @Value("${app.otp.store.max-rate-keys:50000}")
+    private int maxRateKeys;
+
+    private record OtpEntry(String otp, long expiresAt) {
+    }
+
+    private record RateWindow(int count, long expiresAt) {
+    }
+
+    private final Map<String, OtpEntry> otps = new ConcurrentHashMap<>();
+    private final Map<String, RateWindow> rateWindows = new ConcurrentHashMap<>();
+
+    private final MeterRegistry registry;
+
+    public InMemoryOtpStore(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("otp.store.size", otps, Map::size)
+                .description("Entries held by the OTP store")
+                .tag("map", OTP_MAP)
+                .register(registry);
+        Gauge.builder("otp.store.size", rateWindows, Map::size)
+                .description("Entries held by the OTP store")
+                .tag("map", RATE_MAP)
+                .register(registry);
+    }
+
+    @Override
+    public void putOtp(String key, String otp, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        if (otps.size() >= maxOtps && !otps.containsKey(key)) {
+            makeRoom(otps, maxOtps, OtpEntry::expiresAt, now, OTP_MAP);
+        }
+        otps.put(key, new OtpEntry(otp, now + ttlMillis));
+    }
+
+    @Override
+    public String getOtp(String key) {
+        OtpEntry entry = otps.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() > entry.expiresAt()) {
+            if (otps.remove(key, entry)) {
+                evicted(OTP_MAP, "expired", 1);
+            }
+            return null;
+        }
+        return entry.otp();
+    }
+
+    @Override
+    public void deleteOtp(String key) {
+        otps.remove(key);
+    }
+
+    @Override
+    public boolean tryAcquire(String key, int limit, long windowMillis) {
+        long now = System.currentTimeMillis();
+        if (rateWindows.size() >= maxRateKeys && !rateWindows.containsKey(key)) {
+            makeRoom(rateWindows, maxRateKeys, RateWindow::expiresAt, now, RATE_MAP);
+        }
+        boolean[] allowed = new boolean[1];
+        // compute runs under the key's bin lock, so concurrent attempts are counted exactly
+        rateWindows.compute(key, (k, current) -> {
+            if (current == null || now > current.expiresAt()) {
+                allowed[0] = true;
+                return new RateWindow(1, now + windowMillis);
+            }
+            if (current.count() >= limit) {
+                return current;
+            }
+            allowed[0] = true;
+            return new RateWindow(current.count() + 1, current.expiresAt());
+        });
+        return allowed[0];
+    }
+
+    // ========== Expiry sweep ==========
+
+    @Scheduled(fixedDelayString = "${app.otp.store.sweep-ms:30000}")
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        evicted(OTP_MAP, "expired", removeExpired(otps, OtpEntry::expiresAt, now));
+        evicted(RATE_MAP, "expired", removeExpired(rateWindows, RateWindow::expiresAt, now));
+    }
+
+    private static <V> int removeExpired(Map<String, V> map, ToLongFunction<V> expiresAt, long now) {
+        int removed = 0;
+        for (Map.Entry<String, V> entry : map.entrySet()) {
+            if (expiresAt.applyAsLong(entry.getValue()) < now && map.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private synchronized <V> void makeRoom(Map<String, V> map, int cap, ToLongFunction<V> expiresAt,
+            long now, String mapName) {
+        if (map.size() < cap) {
+            return; // another writer already made room
+        }
+        evicted(mapName, "expired", removeExpired(map, expiresAt, now));
+        if (map.size() < cap) {
+            return;
+        }
+        int excess = map.size() - cap + Math.max(cap / 10, 1);
+        int[] removed = new int[1];
+        map.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> expiresAt.applyAsLong(entry.getValue())))
+                .limit(excess)
+                .toList()
+                .forEach(entry -> {
+                    if (map.remove(entry.getKey(), entry.getValue())) {
+                        removed[0]++;
+                    }
+                });
+        evicted(mapName, "capacity", removed[0]);
+    }
+
+    private void evicted(String map, String cause, int count) {
+        if (count == 0) {
+            return;
+        }
+        Counter.builder("otp.store.evictions")
+                .description("Entries removed by expiry or the size cap")
+                .tags("map", map, "cause", cause)
+                .register(registry)
+                .increment(count);
+    }
+}
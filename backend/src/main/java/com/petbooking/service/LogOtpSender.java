@@ -0,0 +1,25 @@
+package com.petbooking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Development sink: writes each OTP to the application log instead of mailing it.
+ */
+@Component
+@ConditionalOnProperty(name = "app.otp.sender", havingValue = "log", matchIfMissing = true)
+public class LogOtpSender implements OtpSender {
+
+    private static final Logger log = LoggerFactory.getLogger(LogOtpSender.class);
+
+    @Override
+    public void send(List<OtpMessage> batch) {
+        for (OtpMessage message : batch) {
+            log.info("OTP for {}: {}", message.email(), message.otp());
+        }
+    }
+}
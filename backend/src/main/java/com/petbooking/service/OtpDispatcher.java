@@ -0,0 +1,163 @@
+package com.petbooking.service;
+
+import com.petbooking.service.OtpSender.OtpMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends login OTPs off the request thread. dispatch() only enqueues; a small pool of
+ * workers takes whatever is waiting (up to max-batch-size) and hands it to the OtpSender,
+ * retrying a failed batch with exponential backoff before giving up on it.
+ *
+ * Meters: otp.dispatch.queue.depth, otp.dispatch.latency{outcome = sent | failed}
+ * (enqueue to delivery), otp.dispatch.batch.size, otp.dispatch.retries, otp.dispatch.rejected.
+ */
+@Component
+public class OtpDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OtpDispatcher.class);
+
+    @Autowired
+    private OtpSender sender;
+
+    @Value("${app.otp.dispatch.max-batch-size:50}")
+    private int maxBatchSize;
+
+    @Value("${app.otp.dispatch.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${app.otp.dispatch.backoff-ms:200}")
+    private long backoffMs;
+
+    @Value("${app.otp.dispatch.max-backoff-ms:5000}")
+    private long maxBackoffMs;
+
+    private final int workerCount;
+    private final BlockingQueue<OtpMessage> queue;
+    private final ExecutorService workers;
+    private final MeterRegistry registry;
+    private final Counter retries;
+    private final Counter rejected;
+    private final DistributionSummary batchSizes;
+
+    public OtpDispatcher(MeterRegistry registry,
+            @Value("${app.otp.dispatch.workers:2}") int workerCount,
+            @Value("${app.otp.dispatch.queue-capacity:10000}") int queueCapacity) {
+        this.registry = registry;
+        this.workerCount = workerCount;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "otp-dispatch");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Gauge.builder("otp.dispatch.queue.depth", queue, BlockingQueue::size)
+                .description("OTP messages waiting for a dispatch worker")
+                .register(registry);
+        this.retries = Counter.builder("otp.dispatch.retries")
+                .description("OTP batches re-sent after a sender failure")
+                .register(registry);
+        this.rejected = Counter.builder("otp.dispatch.rejected")
+                .description("OTP messages refused because the dispatch queue was full")
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("otp.dispatch.batch.size")
+                .description("OTP messages handed to the sender per call")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::runWorker);
+        }
+    }
+
+    /**
+     * Queue an OTP for delivery. Returns false, without blocking, when the queue is full.
+     */
+    public boolean dispatch(String email, String otp) {
+        if (queue.offer(new OtpMessage(email, otp, System.nanoTime()))) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    private void runWorker() {
+        List<OtpMessage> batch = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            deliver(batch);
+            batch.clear();
+        }
+    }
+
+    private void deliver(List<OtpMessage> batch) {
+        batchSizes.record(batch.size());
+        long backoff = backoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sender.send(batch);
+                finished(batch, "sent");
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Giving up on {} OTP message(s) after {} attempts", batch.size(), attempt, e);
+                    finished(batch, "failed");
+                    return;
+                }
+                log.warn("OTP send failed (attempt {} of {}), retrying in {} ms: {}",
+                        attempt, maxAttempts, backoff, e.getMessage());
+                retries.increment();
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                finished(batch, "failed");
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = Math.min(backoff * 2, maxBackoffMs);
+        }
+    }
+
+    private void finished(List<OtpMessage> batch, String outcome) {
+        Timer latency = Timer.builder("otp.dispatch.latency")
+                .description("Time from login request to OTP handed to the sender")
+                .tag("outcome", outcome)
+                .register(registry);
+        long now = System.nanoTime();
+        for (OtpMessage message : batch) {
+            latency.record(now - message.queuedNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,16 @@
+package com.petbooking.service;
+
+import java.util.List;
+
+/**
+ * Delivers login OTPs for OtpDispatcher. Called from a dispatcher worker with up to
+ * app.otp.dispatch.max-batch-size messages; throwing fails the whole batch, which is
+ * retried with backoff. Selected with app.otp.sender.
+ */
+public interface OtpSender {
+
+    void send(List<OtpMessage> batch) throws Exception;
+
+    record OtpMessage(String email, String otp, long queuedNanos) {
+    }
+}
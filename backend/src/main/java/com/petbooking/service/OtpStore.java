@@ -0,0 +1,25 @@
+package com.petbooking.service;
+
+/**
+ * Short-lived key/value storage behind OtpService: one-time passwords and fixed-window
+ * rate-limit counters. The operations mirror what a Redis-style store gives
+ * (SET with PX, GET, DEL, INCR + PEXPIRE) so an external or embedded stand-in can replace
+ * the in-memory implementation. Selected with app.otp.store.
+ */
+public interface OtpStore {
+
+    void putOtp(String key, String otp, long ttlMillis);
+
+    /**
+     * The stored OTP, or null if absent or expired
+     */
+    String getOtp(String key);
+
+    void deleteOtp(String key);
+
+    /**
+     * Atomically count one attempt in the key's current window. The first attempt opens a
+     * window of windowMillis; returns false once limit attempts were already counted in it.
+     */
+    boolean tryAcquire(String key, int limit, long windowMillis);
+}
@@ -0,0 +1,157 @@
+package com.petbooking.service;
+
+import com.petbooking.entity.ExamQuota;
+import com.petbooking.exception.BookingException;
+import com.petbooking.exception.BookingException.Reason;
+import com.petbooking.repository.ExamQuotaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory admission gate in front of exam quota bookings.
+ * Each quota gets a permit counter seeded from (maxCount - currentFill), so requests
+ * for a full or closed quota are rejected without touching the database.
+ * The conditional UPDATE in the booking transaction stays the source of truth.
+ */
+@Component
+public class QuotaAdmissionGate {
+
+    @Autowired
+    private ExamQuotaRepository examQuotaRepository;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // Bumped by invalidate; a seed read before the bump is not kept
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private static class Entry {
+        final AtomicInteger permits;
+        final boolean closed;
+        final String examId;
+
+        Entry(int permits, boolean closed, String examId) {
+            this.permits = new AtomicInteger(Math.max(permits, 0));
+            this.closed = closed;
+            this.examId = examId;
+        }
+    }
+
+    /**
+     * A permit held by one booking attempt. Must be settled with bookingFailed if the
+     * booking does not commit.
+     */
+    public static class Permit {
+        private final Entry entry;
+        private final Runnable reseed;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Permit(Entry entry, Runnable reseed) {
+            this.entry = entry;
+            this.reseed = reseed;
+        }
+
+        public void release() {
+            if (entry != null && released.compareAndSet(false, true)) {
+                entry.permits.incrementAndGet();
+            }
+        }
+
+        /**
+         * The booking did not commit. A FULL from the database means the counter admitted
+         * more than was left, so instead of taking the permit back the counter is dropped and
+         * re-seeded from the database on next use. Any other failure hands the permit back.
+         */
+        public void bookingFailed(Throwable failure) {
+            if (failure instanceof BookingException e && e.getReason() == Reason.FULL) {
+                if (entry != null && released.compareAndSet(false, true)) {
+                    reseed.run();
+                }
+            } else {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Take one permit for the quota, or throw if it is closed or has no capacity left.
+     * Unknown quotas are let through so the booking transaction can report them.
+     */
+    public Permit acquire(Long quotaId) {
+        Entry entry = entry(quotaId);
+        if (entry == null) {
+            return new Permit(null, null);
+        }
+        if (entry.closed) {
+            throw new BookingException(Reason.CLOSED, "Booking is closed for this slot");
+        }
+        while (true) {
+            int available = entry.permits.get();
+            if (available <= 0) {
+                throw new BookingException(Reason.FULL, "No slots available - quota is full");
+            }
+            if (entry.permits.compareAndSet(available, available - 1)) {
+                return new Permit(entry, () -> entries.remove(quotaId, entry));
+            }
+        }
+    }
+
+    /**
+     * Drop the cached counter so it is re-seeded from the database on next use.
+     * Call after any admin change to maxCount, isClosed or the quota itself.
+     */
+    public void invalidate(Long quotaId) {
+        invalidations.incrementAndGet();
+        entries.remove(quotaId);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Exam id of the quota, from the seeded counter; null if the quota does not exist.
+     * Seeds the counter if needed, so the acquire that follows finds it in memory.
+     */
+    public String examOf(Long quotaId) {
+        Entry entry = quotaId != null ? entry(quotaId) : null;
+        return entry != null ? entry.examId : null;
+    }
+
+    private Entry entry(Long quotaId) {
+        Entry entry = entries.get(quotaId);
+        if (entry != null) {
+            return entry;
+        }
+        // Seeded outside the map: a computeIfAbsent would hold the bin lock (and pin a
+        // virtual thread to its carrier) while waiting for a connection
+        long generation = invalidations.get();
+        Entry seeded = seed(quotaId);
+        if (seeded == null) {
+            return null;
+        }
+        Entry existing = entries.putIfAbsent(quotaId, seeded);
+        if (existing != null) {
+            return existing;
+        }
+        if (invalidations.get() != generation) {
+            entries.remove(quotaId, seeded);
+        }
+        return seeded;
+    }
+
+    private Entry seed(Long quotaId) {
+        ExamQuota quota = examQuotaRepository.findById(quotaId).orElse(null);
+        if (quota == null) {
+            return null;
+        }
+        return new Entry(quota.getMaxCount() - quota.getCurrentFill(), quota.getIsClosed(),
+                String.valueOf(quota.getExam().getExamId()));
+    }
+}
@@ -0,0 +1,294 @@
+package com.petbooking.service;
+
+import com.petbooking.event.QuotaChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared publisher behind GET /api/student/slots/stream.
+ * Quota changes are coalesced per connection (latest state per quota wins) and flushed
+ * on a fixed interval, so each subscriber gets at most one message per interval no
+ * matter how many bookings land in between. The flush thread only hands connections to a
+ * small send pool, one send in flight per connection; while a send is blocked, that
+ * connection's deltas keep coalescing. A connection whose send has been blocked longer than
+ * app.slot-stream.send-timeout-ms is dropped at once and closed when that write returns
+ * (the emitter is locked during a send), so a slow client never delays the others beyond
+ * the send threads it ties up.
+ */
+@Service
+public class QuotaStreamPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(QuotaStreamPublisher.class);
+
+    @Autowired
+    private StudentAvailabilityCache availabilityCache;
+
+    @Value("${app.slot-stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${app.slot-stream.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${app.slot-stream.interval-ms:1000}")
+    private long intervalMs;
+
+    @Value("${app.slot-stream.send-threads:8}")
+    private int sendThreads;
+
+    @Value("${app.slot-stream.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "slot-stream-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Created in startFlusher; holds at most one task per connection (see Subscriber.sending)
+    private ThreadPoolExecutor sender;
+
+    // Subscribers grouped by "DEPT:categoryType"
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private static class Subscriber {
+        final String key;
+        final SseEmitter emitter;
+        // Pending deltas keyed by quotaId
+        final Map<Long, Map<String, Object>> pending = new LinkedHashMap<>();
+        // Set when exams were created/deleted; the client should refetch the full list
+        boolean refresh;
+        // Deltas are held back until the snapshot has gone out
+        volatile boolean snapshotSent;
+        volatile long lastSentAt = System.currentTimeMillis();
+        // Set while a send task is queued or running; sendStartedAt is 0 until it runs
+        final AtomicBoolean sending = new AtomicBoolean();
+        volatile long sendStartedAt;
+        // Dropped for a blocked send; the send thread closes the emitter when the write returns
+        volatile boolean closed;
+
+        Subscriber(String key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * Open a stream for the student's (deptCode, categoryType) quotas.
+     * The first event is a full snapshot in the same shape as GET /api/student/slots.
+     */
+    public SseEmitter subscribe(String rollNo) throws IOException {
+        StudentAvailabilityCache.StudentProfile profile = availabilityCache.getProfile(rollNo);
+        String key = key(profile.deptCode(), profile.categoryType());
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(key, emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        // Register before reading the snapshot so no change published in between is missed;
+        // a delta that the snapshot already covers is harmless (fill deltas are max-merged)
+        subscribers.computeIfAbsent(key, k -> new CopyOnWriteArraySet<>()).add(subscriber);
+        try {
+            emitter.send(SseEmitter.event().name("snapshot")
+                    .data(availabilityCache.getAvailabilityJson(rollNo), MediaType.APPLICATION_JSON));
+        } catch (IOException | RuntimeException e) {
+            remove(subscriber);
+            throw e;
+        }
+        subscriber.snapshotSent = true;
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQuotaChanged(QuotaChangedEvent event) {
+        if (event.getKind() == QuotaChangedEvent.Kind.ALL) {
+            subscribers.values().forEach(set -> set.forEach(s -> {
+                synchronized (s) {
+                    s.refresh = true;
+                }
+            }));
+            return;
+        }
+
+        Set<Subscriber> targets = subscribers.get(key(event.getDeptCode(), event.getCategoryType()));
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        for (Subscriber s : targets) {
+            synchronized (s) {
+                coalesce(s.pending, event);
+            }
+        }
+    }
+
+    private void coalesce(Map<Long, Map<String, Object>> pending, QuotaChangedEvent event) {
+        Map<String, Object> delta = pending.computeIfAbsent(event.getQuotaId(), id -> {
+            Map<String, Object> d = new LinkedHashMap<>();
+            d.put("quotaId", id);
+            return d;
+        });
+        switch (event.getKind()) {
+            case FILL -> {
+                // Fill only grows on the booking path; keep the highest value seen
+                Integer previous = (Integer) delta.get("bookedCount");
+                delta.put("bookedCount", previous == null ? event.getCurrentFill()
+                        : Math.max(previous, event.getCurrentFill()));
+            }
+            case UPDATED -> {
+                delta.remove("removed");
+                delta.put("bookedCount", event.getCurrentFill());
+                delta.put("maxCount", event.getMaxCount());
+                delta.put("closed", event.getClosed());
+            }
+            case REMOVED -> {
+                delta.clear();
+                delta.put("quotaId", event.getQuotaId());
+                delta.put("removed", true);
+            }
+            default -> {
+            }
+        }
+    }
+
+    @PostConstruct
+    void startFlusher() {
+        AtomicInteger threadNo = new AtomicInteger();
+        sender = new ThreadPoolExecutor(sendThreads, sendThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "slot-stream-send-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        sender.allowCoreThreadTimeOut(true);
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // keep the schedule alive; a failed round only delays the next deltas
+                log.warn("Slot stream flush failed", e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        if (sender != null) {
+            sender.shutdownNow();
+        }
+    }
+
+    /**
+     * Hand every connection with something to send to the send pool; this interval is the
+     * per-connection rate limit. Nothing is written to a connection on this thread.
+     */
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber s : set) {
+                if (!s.snapshotSent) {
+                    continue;
+                }
+                if (s.sending.get()) {
+                    long started = s.sendStartedAt;
+                    if (started > 0 && now - started > sendTimeoutMs && !s.closed) {
+                        log.debug("Dropping slot stream for {}: send blocked for {} ms", s.key, now - started);
+                        s.closed = true;
+                        remove(s);
+                    }
+                    continue;
+                }
+                if (!hasWork(s, now)) {
+                    continue;
+                }
+                s.sending.set(true);
+                try {
+                    sender.execute(() -> send(s));
+                } catch (RejectedExecutionException e) {
+                    s.sending.set(false); // shutting down
+                }
+            }
+        }
+    }
+
+    private boolean hasWork(Subscriber s, long now) {
+        synchronized (s) {
+            if (s.refresh || !s.pending.isEmpty()) {
+                return true;
+            }
+        }
+        return now - s.lastSentAt >= heartbeatMs;
+    }
+
+    private void send(Subscriber s) {
+        long now = System.currentTimeMillis();
+        s.sendStartedAt = now;
+        try {
+            List<Map<String, Object>> deltas;
+            boolean refresh;
+            synchronized (s) {
+                deltas = new ArrayList<>(s.pending.values());
+                refresh = s.refresh;
+                s.pending.clear();
+                s.refresh = false;
+            }
+
+            if (refresh) {
+                s.emitter.send(SseEmitter.event().name("refresh").data(Map.of()));
+            } else if (!deltas.isEmpty()) {
+                s.emitter.send(SseEmitter.event().name("quota").data(deltas, MediaType.APPLICATION_JSON));
+            } else {
+                s.emitter.send(SseEmitter.event().comment("keep-alive"));
+            }
+            s.lastSentAt = now;
+        } catch (IOException | IllegalStateException e) {
+            remove(s);
+        } catch (RuntimeException e) {
+            log.warn("Slot stream send failed", e);
+            remove(s);
+        } finally {
+            s.sendStartedAt = 0;
+            if (s.closed) {
+                s.emitter.complete();
+            }
+            s.sending.set(false);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void remove(Subscriber subscriber) {
+        Set<Subscriber> set = subscribers.get(subscriber.key);
+        if (set != null) {
+            set.remove(subscriber);
+        }
+    }
+
+    private static String key(String deptCode, Integer categoryType) {
+        return deptCode.trim().toUpperCase() + ":" + categoryType;
+    }
+}
@@ -0,0 +1,179 @@
+package com.petbooking.service;
+
+import com.petbooking.entity.ExamQuota;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Striped counters for hot exam quotas. A quota with stripe_count K > 1 has its capacity
+ * split over K exam_quota_stripes rows; a booking increments a random stripe and falls
+ * back to the others when it is exhausted, so concurrent bookers of one quota mostly lock
+ * different rows instead of queueing on the exam_quotas row.
+ *
+ * Booking decisions and the fill published after a booking read the stripes. For the
+ * admin views, gauges and availability listing, exam_quotas.current_fill is kept as a
+ * roll-up of the stripes, refreshed every app.quota.stripes.rollup-ms.
+ *
+ * Whether a quota is striped is read from its row inside each booking transaction, and
+ * the single-counter increments only match rows with stripe_count <= 1, so a booking that
+ * races a re-stripe is refused rather than counted on the wrong side.
+ */
+@Service
+public class QuotaStripeService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuotaStripeService.class);
+
+    public static final int MAX_STRIPES = 64;
+
+    private static final String CLAIM_SQL = "UPDATE exam_quota_stripes SET current_fill = current_fill + 1 "
+            + "WHERE quota_id = ? AND stripe_no = ? AND current_fill < max_count";
+
+    private static final String ROLL_UP_SQL =
+            "UPDATE exam_quotas SET current_fill = "
+                    + "(SELECT SUM(s.current_fill) FROM exam_quota_stripes s WHERE s.quota_id = exam_quotas.id) "
+                    + "WHERE id IN (SELECT quota_id FROM exam_quota_stripes) AND current_fill <> "
+                    + "(SELECT SUM(s.current_fill) FROM exam_quota_stripes s WHERE s.quota_id = exam_quotas.id)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.quota.stripes.default:1}")
+    private int defaultStripes;
+
+    /**
+     * Stripe count given to quotas created by exam initialization.
+     */
+    public int defaultStripeCount() {
+        return Math.min(Math.max(defaultStripes, 1), MAX_STRIPES);
+    }
+
+    /**
+     * Take one seat from a random stripe, trying the others in turn if it is full.
+     * Returns the quota's total fill after the claim, or null if every stripe is full.
+     * Runs in the caller's transaction, which keeps the claimed stripe locked until commit.
+     */
+    public Integer claim(Long quotaId, int stripeCount) {
+        int start = ThreadLocalRandom.current().nextInt(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            if (jdbcTemplate.update(CLAIM_SQL, quotaId, (start + i) % stripeCount) == 1) {
+                return totalFill(quotaId);
+            }
+        }
+        return null;
+    }
+
+    public int totalFill(Long quotaId) {
+        Integer fill = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(current_fill), 0) FROM exam_quota_stripes WHERE quota_id = ?",
+                Integer.class, quotaId);
+        return fill != null ? fill : 0;
+    }
+
+    /**
+     * Change a quota's capacity and/or stripe count (null = unchanged) and re-split its
+     * stripes in one transaction that holds the quota row lock throughout.
+     */
+    @Transactional
+    public ExamQuota updateQuota(Long quotaId, Integer maxCount, Integer stripeCount) {
+        if (stripeCount != null && (stripeCount < 1 || stripeCount > MAX_STRIPES)) {
+            throw new RuntimeException("stripeCount must be between 1 and " + MAX_STRIPES);
+        }
+        ExamQuota quota = entityManager.find(ExamQuota.class, quotaId);
+        if (quota == null) {
+            throw new RuntimeException("Quota not found");
+        }
+        // Stripes before the quota row: a striped booking holds its stripe while its insert
+        // into bookings takes a key-share lock on the quota row (foreign key)
+        jdbcTemplate.queryForList("SELECT id FROM exam_quota_stripes WHERE quota_id = ? ORDER BY stripe_no FOR UPDATE",
+                Long.class, quotaId);
+        entityManager.refresh(quota, LockModeType.PESSIMISTIC_WRITE);
+        boolean striped = quota.getStripeCount() > 1;
+        if (maxCount != null) {
+            quota.setMaxCount(maxCount);
+        }
+        if (stripeCount != null) {
+            quota.setStripeCount(stripeCount);
+        }
+        entityManager.flush();
+        if (striped || quota.getStripeCount() > 1) {
+            quota.setCurrentFill(restripe(quotaId));
+        }
+        return quota;
+    }
+
+    /**
+     * Rebuild a quota's stripes from its current stripe_count and max_count, keeping the
+     * booked total. Call after either changes; with stripe_count 1 the stripes are folded
+     * back into exam_quotas.current_fill. Returns the quota's fill. Runs in (or joins) a
+     * transaction; bookings racing a re-stripe may be refused as full.
+     */
+    @Transactional
+    public int restripe(Long quotaId) {
+        Map<String, Object> quota = jdbcTemplate.queryForMap(
+                "SELECT max_count, current_fill, stripe_count FROM exam_quotas WHERE id = ? FOR UPDATE", quotaId);
+        int maxCount = ((Number) quota.get("max_count")).intValue();
+        Number stripeCount = (Number) quota.get("stripe_count");
+        int stripes = stripeCount != null ? stripeCount.intValue() : 1;
+        if (stripes < 1 || stripes > MAX_STRIPES) {
+            throw new RuntimeException("stripeCount must be between 1 and " + MAX_STRIPES);
+        }
+
+        List<Integer> stripeFills = jdbcTemplate.queryForList(
+                "SELECT current_fill FROM exam_quota_stripes WHERE quota_id = ? FOR UPDATE", Integer.class, quotaId);
+        int fill = stripeFills.isEmpty() ? ((Number) quota.get("current_fill")).intValue()
+                : stripeFills.stream().mapToInt(Integer::intValue).sum();
+
+        jdbcTemplate.update("DELETE FROM exam_quota_stripes WHERE quota_id = ?", quotaId);
+        if (stripes > 1) {
+            // Even split of capacity, remainder on the first stripes; booked seats fill
+            // stripes in order and any overbooking (max lowered below fill) stays on stripe 0
+            List<Object[]> rows = new ArrayList<>();
+            int remaining = fill;
+            for (int i = 0; i < stripes; i++) {
+                int capacity = maxCount / stripes + (i < maxCount % stripes ? 1 : 0);
+                int stripeFill = Math.min(capacity, remaining);
+                remaining -= stripeFill;
+                rows.add(new Object[] { quotaId, i, capacity, stripeFill });
+            }
+            rows.get(0)[3] = (Integer) rows.get(0)[3] + remaining;
+            jdbcTemplate.batchUpdate("INSERT INTO exam_quota_stripes (quota_id, stripe_no, max_count, current_fill) "
+                    + "VALUES (?, ?, ?, ?)", rows);
+        }
+        jdbcTemplate.update("UPDATE exam_quotas SET current_fill = ? WHERE id = ?", fill, quotaId);
+        log.info("Quota {} split into {} stripe(s), fill {}/{}", quotaId, stripes, fill, maxCount);
+        return fill;
+    }
+
+    public void deleteForQuota(Long quotaId) {
+        jdbcTemplate.update("DELETE FROM exam_quota_stripes WHERE quota_id = ?", quotaId);
+    }
+
+    public void deleteForExam(Long examId) {
+        jdbcTemplate.update("DELETE FROM exam_quota_stripes WHERE quota_id IN "
+                + "(SELECT id FROM exam_quotas WHERE exam_id = ?)", examId);
+    }
+
+    // ========== Roll-up into exam_quotas.current_fill ==========
+
+    @Scheduled(fixedDelayString = "${app.quota.stripes.rollup-ms:1000}")
+    public void rollUp() {
+        jdbcTemplate.update(ROLL_UP_SQL);
+    }
+}
@@ -0,0 +1,110 @@
+package com.petbooking.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Streams the first sheet of an .xlsx roster through POI's SAX event model, one row at a time.
+ * Unlike XSSFWorkbook it never builds the sheet DOM, so memory stays flat regardless of row count.
+ */
+class RosterSheetReader {
+
+    interface RowHandler {
+        /**
+         * @param rowNum 1-based Excel row number
+         * @param cells  trimmed cell text, "" for empty cells
+         */
+        void row(int rowNum, String[] cells);
+    }
+
+    private final int columns;
+
+    RosterSheetReader(int columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Read every row after the header row and hand it to the handler.
+     */
+    void read(Path file, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null, strings,
+                        new RowCollector(handler), new WholeNumberFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Could not read Excel file: " + e.getMessage(), e);
+        }
+    }
+
+    private class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private final String[] cells = new String[columns];
+        private boolean headerSeen = false;
+        private int lastColumn;
+
+        RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(cells, "");
+            lastColumn = -1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            // Skip header
+            if (!headerSeen) {
+                headerSeen = true;
+                return;
+            }
+            handler.row(rowNum + 1, cells.clone());
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = cellReference != null ? new CellReference(cellReference).getCol() : lastColumn + 1;
+            lastColumn = col;
+            if (col < columns && formattedValue != null) {
+                cells[col] = formattedValue.trim();
+            }
+        }
+    }
+
+    // Numeric cells (e.g. roll numbers) come through as whole numbers, matching the old (long) cast
+    private static class WholeNumberFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString,
+                boolean use1904Windowing) {
+            return String.valueOf((long) value);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.petbooking.service;
+
+import com.petbooking.dto.ExamDtos.SeatAvailability;
+import com.petbooking.entity.ExamSeatBooking;
+import com.petbooking.entity.ExamSeatInventory;
+import com.petbooking.exception.BookingException;
+import com.petbooking.exception.BookingException.Reason;
+import com.petbooking.repository.ExamSeatBookingRepository;
+import com.petbooking.repository.ExamSeatInventoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Seat inventory for exams, in one of two storage models selected by app.seat-inventory.mode:
+ * "seats" writes one exam_slot_seats row per physical seat (the original model), "compact"
+ * writes one exam_seat_inventory row per (exam, date, dept, category) with a capacity and a
+ * booked counter. Counts, availability and the admin seat export work the same for both.
+ */
+@Service
+public class SeatInventoryService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ExamSeatInventoryRepository inventoryRepository;
+    @Autowired
+    private ExamSeatBookingRepository seatBookingRepository;
+
+    @Value("${app.seat-inventory.mode:seats}")
+    private String mode;
+
+    // Seat rows sent per JDBC batch when generating inventory
+    @Value("${app.exam-init.seat-batch-size:1000}")
+    private int seatBatchSize;
+
+    // Further claim rounds when the last free seats of a date are locked by other bookings
+    private static final int SEAT_CLAIM_RETRIES = 3;
+
+    // seatCount identical AVAILABLE seats for one (date, dept, category)
+    public record SeatRun(LocalDate slotDate, Long deptId, int categoryType, int seatCount) {
+    }
+
+    public boolean isCompact() {
+        return "compact".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Write the inventory for a new exam. Returns the number of seats created.
+     */
+    public int generate(Long examId, List<SeatRun> runs) {
+        return isCompact() ? insertInventoryRows(examId, runs) : insertSeats(examId, runs);
+    }
+
+    // One exam_seat_inventory row per run
+    private int insertInventoryRows(Long examId, List<SeatRun> runs) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO exam_seat_inventory (exam_id, slot_date, dept_id, category_type, capacity, booked_count) "
+                        + "VALUES (?, ?, ?, ?, ?, 0)",
+                runs, seatBatchSize, (ps, run) -> {
+                    ps.setLong(1, examId);
+                    ps.setObject(2, run.slotDate());
+                    ps.setLong(3, run.deptId());
+                    ps.setInt(4, run.categoryType());
+                    ps.setInt(5, run.seatCount());
+                });
+        return runs.stream().mapToInt(SeatRun::seatCount).sum();
+    }
+
+    /**
+     * Write the planned seats with JDBC batches, expanding each run while binding
+     * parameters so no entity or per-seat object is ever built. Returns the number of
+     * seats written.
+     *
+     * slot_id is left to the identity column. Hibernate needs sequence-allocated ids to
+     * batch because it must know each entity's id; these inserts never read the ids back,
+     * so they batch as they are. Pre-fetching ids with nextval only adds a round trip
+     * per batch.
+     */
+    private int insertSeats(Long examId, List<SeatRun> runs) {
+        int total = runs.stream().mapToInt(SeatRun::seatCount).sum();
+        int written = 0;
+        int runIndex = 0;
+        int usedInRun = 0;
+
+        while (written < total) {
+            int batch = Math.min(seatBatchSize, total - written);
+            // Flatten the next `batch` seats into (run, count) positions up front
+            SeatRun[] seats = new SeatRun[batch];
+            for (int i = 0; i < batch; i++) {
+                if (usedInRun == runs.get(runIndex).seatCount()) {
+                    runIndex++;
+                    usedInRun = 0;
+                }
+                seats[i] = runs.get(runIndex);
+                usedInRun++;
+            }
+
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO exam_slot_seats (exam_id, slot_date, dept_id, category_type, status) "
+                            + "VALUES (?, ?, ?, ?, 'AVAILABLE')",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setLong(1, examId);
+                            ps.setObject(2, seats[i].slotDate());
+                            ps.setLong(3, seats[i].deptId());
+                            ps.setInt(4, seats[i].categoryType());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return seats.length;
+                        }
+                    });
+            written += batch;
+        }
+        return written;
+    }
+
+    /**
+     * Total seats for an exam.
+     */
+    public long countSeats(Long examId) {
+        if (isCompact()) {
+            return inventoryRepository.sumCapacityByExamId(examId);
+        }
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM exam_slot_seats WHERE exam_id = ?",
+                Long.class, examId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Dates with free seats for an exam, dept, and category, one entry per date.
+     */
+    @Transactional(readOnly = true)
+    public List<SeatAvailability> findAvailableSlots(Long examId, Long deptId, Integer categoryType) {
+        if (isCompact()) {
+            List<SeatAvailability> result = new ArrayList<>();
+            for (ExamSeatInventory i : inventoryRepository.findAvailableSlots(examId, deptId, categoryType)) {
+                result.add(new SeatAvailability(i.getSlotDate(), deptId, categoryType, i.getCapacity(),
+                        i.getBookedCount(), i.getCapacity() - i.getBookedCount()));
+            }
+            return result;
+        }
+        return jdbcTemplate.query(
+                "SELECT slot_date, COUNT(*) AS capacity, " +
+                        "SUM(CASE WHEN status = 'BOOKED' THEN 1 ELSE 0 END) AS booked " +
+                        "FROM exam_slot_seats WHERE exam_id = ? AND dept_id = ? AND category_type = ? " +
+                        "GROUP BY slot_date HAVING SUM(CASE WHEN status = 'AVAILABLE' THEN 1 ELSE 0 END) > 0 " +
+                        "ORDER BY slot_date",
+                (rs, rowNum) -> {
+                    int capacity = rs.getInt("capacity");
+                    int booked = rs.getInt("booked");
+                    return new SeatAvailability(rs.getObject("slot_date", LocalDate.class), deptId, categoryType,
+                            capacity, booked, capacity - booked);
+                },
+                examId, deptId, categoryType);
+    }
+
+    // ========== Date-choice seat claims ==========
+
+    /**
+     * Book one seat on slotDate for the student, in the caller's transaction. Returns the
+     * claimed exam_slot_seats.slot_id (seats model) or exam_seat_bookings.seat_booking_id
+     * (compact model). Throws DUPLICATE if the student already holds a seat in the exam,
+     * FULL if the date has none left and BUSY if its last seats stay held by other bookings.
+     */
+    public Long claimSeat(Long examId, Long deptId, int categoryType, LocalDate slotDate, String rollNumber) {
+        // Serializes only the same student's concurrent requests, never other bookers
+        jdbcTemplate.queryForList("SELECT roll_no FROM students WHERE roll_no = ? FOR UPDATE", rollNumber);
+        if (hasSeat(examId, rollNumber)) {
+            throw new BookingException(Reason.DUPLICATE, "You have already booked a date for this exam");
+        }
+
+        Long seatId = isCompact()
+                ? claimCompactSeat(examId, deptId, categoryType, slotDate, rollNumber)
+                : claimSeatRow(examId, deptId, categoryType, slotDate, rollNumber);
+        if (seatId == null) {
+            throw new BookingException(Reason.FULL, "No seats left on " + slotDate + ". Please choose another date.");
+        }
+        return seatId;
+    }
+
+    private boolean hasSeat(Long examId, String rollNumber) {
+        String sql = isCompact()
+                ? "SELECT COUNT(*) FROM exam_seat_bookings b JOIN exam_seat_inventory i ON i.inventory_id = b.inventory_id "
+                        + "WHERE i.exam_id = ? AND b.roll_number = ?"
+                : "SELECT COUNT(*) FROM exam_slot_seats WHERE exam_id = ? AND roll_number = ?";
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, examId, rollNumber);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Claim the first unlocked AVAILABLE seat and book it in one statement. SKIP LOCKED lets
+     * concurrent bookers of the same date each take a different row instead of queueing on
+     * the first one. When nothing is claimable but AVAILABLE seats still exist, they are
+     * locked by bookings in flight that may roll back: wait for one of them and retry, and
+     * answer BUSY rather than FULL if that keeps losing. Returns null only when no seat is left.
+     */
+    private Long claimSeatRow(Long examId, Long deptId, int categoryType, LocalDate slotDate, String rollNumber) {
+        for (int attempt = 0; attempt <= SEAT_CLAIM_RETRIES; attempt++) {
+            List<Long> claimed = jdbcTemplate.queryForList(
+                    "UPDATE exam_slot_seats SET roll_number = ?, status = 'BOOKED' " +
+                            "WHERE slot_id = (SELECT slot_id FROM exam_slot_seats " +
+                            "WHERE exam_id = ? AND dept_id = ? AND category_type = ? AND slot_date = ? " +
+                            "AND status = 'AVAILABLE' ORDER BY slot_id LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+                            "AND status = 'AVAILABLE' RETURNING slot_id",
+                    Long.class, rollNumber, examId, deptId, categoryType, slotDate);
+            if (!claimed.isEmpty()) {
+                return claimed.get(0);
+            }
+
+            // Without SKIP LOCKED: blocks until the holder of the first free seat finishes. If it
+            // rolled back the seat is now ours to book; if it committed, nothing comes back
+            List<Long> released = jdbcTemplate.queryForList(
+                    "SELECT slot_id FROM exam_slot_seats " +
+                            "WHERE exam_id = ? AND dept_id = ? AND category_type = ? AND slot_date = ? " +
+                            "AND status = 'AVAILABLE' ORDER BY slot_id LIMIT 1 FOR UPDATE",
+                    Long.class, examId, deptId, categoryType, slotDate);
+            if (!released.isEmpty() && jdbcTemplate.update(
+                    "UPDATE exam_slot_seats SET roll_number = ?, status = 'BOOKED' WHERE slot_id = ? AND status = 'AVAILABLE'",
+                    rollNumber, released.get(0)) == 1) {
+                return released.get(0);
+            }
+            if (!hasAvailableSeat(examId, deptId, categoryType, slotDate)) {
+                return null;
+            }
+        }
+        throw new BookingException(Reason.BUSY,
+                "Seats on " + slotDate + " are being booked right now. Please try again in a moment.");
+    }
+
+    // Plain read: counts seats that in-flight bookings hold but have not committed yet
+    private boolean hasAvailableSeat(Long examId, Long deptId, int categoryType, LocalDate slotDate) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM exam_slot_seats WHERE exam_id = ? AND dept_id = ? AND category_type = ? " +
+                        "AND slot_date = ? AND status = 'AVAILABLE'",
+                Long.class, examId, deptId, categoryType, slotDate);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Compact model: there is one counter row per date, so the claim is a conditional
+     * increment and the new booked_count becomes the seat number.
+     */
+    private Long claimCompactSeat(Long examId, Long deptId, int categoryType, LocalDate slotDate, String rollNumber) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "UPDATE exam_seat_inventory SET booked_count = booked_count + 1 " +
+                        "WHERE exam_id = ? AND dept_id = ? AND category_type = ? AND slot_date = ? " +
+                        "AND booked_count < capacity RETURNING inventory_id, booked_count",
+                examId, deptId, categoryType, slotDate);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO exam_seat_bookings (inventory_id, seat_no, roll_number, booked_at) " +
+                        "VALUES (?, ?, ?, CURRENT_TIMESTAMP) RETURNING seat_booking_id",
+                Long.class, rows.get(0).get("inventory_id"), rows.get(0).get("booked_count"), rollNumber);
+    }
+
+    /**
+     * Seat-level CSV for admin export. The compact model is expanded back into one line per seat.
+     */
+    @Transactional(readOnly = true)
+    public void exportSeats(Long examId, Writer out) throws IOException {
+        out.write("slot_date,dept_code,category_type,seat_no,status,roll_number\n");
+        if (isCompact()) {
+            exportCompact(examId, out);
+            return;
+        }
+
+        // Seat numbers restart at 1 for each (date, dept, category)
+        String[] previousGroup = { null };
+        int[] seatNo = { 0 };
+        try {
+            jdbcTemplate.query(
+                    "SELECT s.slot_date, d.dept_code, s.category_type, s.status, s.roll_number " +
+                            "FROM exam_slot_seats s JOIN departments d ON d.dept_id = s.dept_id " +
+                            "WHERE s.exam_id = ? ORDER BY s.slot_date, d.dept_code, s.category_type, s.slot_id",
+                    rs -> {
+                        String group = rs.getString("slot_date") + "," + rs.getString("dept_code") + ","
+                                + rs.getInt("category_type");
+                        seatNo[0] = group.equals(previousGroup[0]) ? seatNo[0] + 1 : 1;
+                        previousGroup[0] = group;
+                        writeLine(out, group, seatNo[0], rs.getString("status"), rs.getString("roll_number"));
+                    },
+                    examId);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void exportCompact(Long examId, Writer out) throws IOException {
+        // inventoryId -> (seatNo -> rollNumber)
+        Map<Long, Map<Integer, String>> booked = new HashMap<>();
+        for (ExamSeatBooking b : seatBookingRepository.findByExamId(examId)) {
+            booked.computeIfAbsent(b.getInventory().getInventoryId(), k -> new HashMap<>())
+                    .put(b.getSeatNo(), b.getRollNumber());
+        }
+
+        for (ExamSeatInventory i : inventoryRepository.findByExamIdWithDepartment(examId)) {
+            String group = i.getSlotDate() + "," + i.getDepartment().getDeptCode() + "," + i.getCategoryType();
+            Map<Integer, String> seats = booked.getOrDefault(i.getInventoryId(), Map.of());
+            for (int seatNo = 1; seatNo <= i.getCapacity(); seatNo++) {
+                String rollNumber = seats.get(seatNo);
+                writeLine(out, group, seatNo, rollNumber != null ? "BOOKED" : "AVAILABLE", rollNumber);
+            }
+        }
+    }
+
+    private static void writeLine(Writer out, String group, int seatNo, String status, String rollNumber) {
+        try {
+            out.write(group + "," + seatNo + "," + status + "," + (rollNumber != null ? rollNumber : "") + "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Remove an exam's inventory from both models.
+     */
+    public void deleteForExam(Long examId) {
+        seatBookingRepository.deleteByExamId(examId);
+        inventoryRepository.deleteByExamId(examId);
+        jdbcTemplate.update("DELETE FROM exam_slot_seats WHERE exam_id = ?", examId);
+    }
+}
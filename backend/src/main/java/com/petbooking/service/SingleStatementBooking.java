@@ -0,0 +1,138 @@
+package com.petbooking.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Exam quota booking as one PostgreSQL statement: a data-modifying CTE validates the
+ * student and quota, increments current_fill conditionally, inserts the booking with
+ * ON CONFLICT DO NOTHING and returns an outcome code. A booking costs that one round trip
+ * plus the commit, in a transaction that holds the quota row lock only between the two.
+ *
+ * The ON CONFLICT target is a partial unique index on bookings(roll_no) for exam quota
+ * bookings, created at startup. On other databases (H2 in the benchmark and load-test
+ * profiles) or if the index cannot be built, isAvailable() is false and BookingService
+ * keeps its JPA path.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SingleStatementBooking {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleStatementBooking.class);
+
+    private static final String UNIQUE_INDEX_DDL =
+            "CREATE UNIQUE INDEX IF NOT EXISTS ux_bookings_exam_quota_roll_no "
+                    + "ON bookings (roll_no) WHERE exam_quota_id IS NOT NULL";
+
+    // Parameters: rollNo, quotaId
+    private static final String BOOK_SQL =
+            "WITH s AS (" +
+                    "  SELECT roll_no, dept_id, CASE category WHEN 'HOSTEL_MALE' THEN 2 " +
+                    "         WHEN 'HOSTEL_FEMALE' THEN 3 ELSE 1 END AS category_type " +
+                    "  FROM students WHERE roll_no = ?" +
+                    "), q AS (" +
+                    "  SELECT eq.id, eq.dept_id, eq.category_type, eq.is_closed, eq.current_fill, eq.max_count, " +
+                    "         eq.stripe_count, " +
+                    "         e.exam_name, e.starting_date, d.dept_code " +
+                    "  FROM exam_quotas eq JOIN exams e ON e.exam_id = eq.exam_id " +
+                    "  JOIN departments d ON d.dept_id = eq.dept_id WHERE eq.id = ?" +
+                    "), prior AS (" +
+                    "  SELECT EXISTS (SELECT 1 FROM bookings b JOIN s ON b.roll_no = s.roll_no) AS booked" +
+                    "), upd AS (" +
+                    "  UPDATE exam_quotas eq SET current_fill = eq.current_fill + 1 FROM s, q, prior " +
+                    "  WHERE eq.id = q.id AND NOT prior.booked " +
+                    "    AND (eq.is_closed IS NULL OR eq.is_closed = false) " +
+                    "    AND eq.category_type = s.category_type AND eq.dept_id = s.dept_id " +
+                    "    AND eq.current_fill < eq.max_count " +
+                    "    AND (eq.stripe_count IS NULL OR eq.stripe_count <= 1) " +
+                    "  RETURNING eq.id, eq.current_fill" +
+                    "), ins AS (" +
+                    "  INSERT INTO bookings (roll_no, dept_id, exam_quota_id, booked_at) " +
+                    "  SELECT s.roll_no, s.dept_id, upd.id, LOCALTIMESTAMP FROM s, upd " +
+                    "  ON CONFLICT (roll_no) WHERE exam_quota_id IS NOT NULL DO NOTHING " +
+                    "  RETURNING booking_id" +
+                    ") " +
+                    "SELECT CASE " +
+                    "    WHEN ins.booking_id IS NOT NULL THEN 'BOOKED' " +
+                    "    WHEN upd.id IS NOT NULL THEN 'DUPLICATE_RACE' " +
+                    "    WHEN s.roll_no IS NULL THEN 'NO_STUDENT' " +
+                    "    WHEN prior.booked THEN 'DUPLICATE' " +
+                    "    WHEN q.id IS NULL THEN 'NO_QUOTA' " +
+                    "    WHEN q.stripe_count > 1 THEN 'STRIPED' " +
+                    "    WHEN q.is_closed THEN 'CLOSED' " +
+                    "    WHEN q.current_fill >= q.max_count THEN 'FULL' " +
+                    "    WHEN q.category_type <> s.category_type THEN 'CATEGORY_MISMATCH' " +
+                    "    WHEN q.dept_id <> s.dept_id THEN 'DEPT_MISMATCH' " +
+                    "    ELSE 'FILL_CONFLICT' END AS outcome, " +
+                    "  ins.booking_id, upd.current_fill, q.exam_name, q.starting_date, q.dept_code, q.category_type " +
+                    "FROM prior LEFT JOIN s ON true LEFT JOIN q ON true LEFT JOIN upd ON true LEFT JOIN ins ON true";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${booking.single-statement.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean available;
+
+    /**
+     * BOOKED, or why not: NO_STUDENT, DUPLICATE, NO_QUOTA, STRIPED (the quota books through
+     * QuotaStripeService and nothing was written), CLOSED, FULL (already full when
+     * read), CATEGORY_MISMATCH, DEPT_MISMATCH, FILL_CONFLICT (filled by a concurrent booking)
+     * or DUPLICATE_RACE (a concurrent request of the same student won after this statement
+     * had incremented the quota; the caller must roll back).
+     */
+    public record Outcome(String code, Long bookingId, Integer currentFill, String examName,
+            LocalDate examDate, String deptCode, Integer categoryType) {
+    }
+
+    @PostConstruct
+    void createUniqueIndex() {
+        if (!enabled) {
+            return;
+        }
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData()
+                .getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(product)) {
+            log.info("Single-statement booking needs PostgreSQL ({} found); using the JPA booking path", product);
+            return;
+        }
+        try {
+            jdbcTemplate.execute(UNIQUE_INDEX_DDL);
+            available = true;
+        } catch (DataAccessException e) {
+            // e.g. existing duplicate exam bookings; the JPA path keeps working without the index
+            log.warn("Could not create ux_bookings_exam_quota_roll_no, single-statement booking disabled: {}",
+                    e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Run the booking statement in the caller's transaction.
+     */
+    public Outcome book(String rollNo, Long quotaId) {
+        return jdbcTemplate.queryForObject(BOOK_SQL, (rs, rowNum) -> new Outcome(
+                rs.getString("outcome"),
+                rs.getObject("booking_id", Long.class),
+                rs.getObject("current_fill", Integer.class),
+                rs.getString("exam_name"),
+                rs.getObject("starting_date", LocalDate.class),
+                rs.getString("dept_code"),
+                rs.getObject("category_type", Integer.class)),
+                rollNo, quotaId);
+    }
+}
@@ -1,8 +1,12 @@
 package com.petbooking.service;
 
+import com.petbooking.allocation.AllocationPlan;
+import com.petbooking.allocation.AllocationRequest;
+import com.petbooking.allocation.SlotAllocatorRegistry;
 import com.petbooking.entity.*;
 import com.petbooking.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,123 +24,250 @@ public class SlotGenerationService {
     private ExamDayRepository examDayRepository;
     @Autowired
     private ExamSlotRepository examSlotRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SlotAllocatorRegistry allocators;
+
+    // One slot to be written: capacity for (day, session, dept, studentType, gender)
+    private record PlannedSlot(int dayIndex, String session, String department, String studentType,
+            String gender, int capacity) {
+    }
+
+    // Counts-derived plan shared by full and incremental generation
+    private record SlotPlan(long totalStudents, int totalDays, List<PlannedSlot> slots) {
+    }
+
+    @Transactional
+    public Map<String, Object> generateSlots(int systemsPerSession, int sessionsPerDay, int labCapacityPerDay,
+            LocalDate startDate) {
+        // Clear old slots (for regeneration) with one DELETE each instead of load-then-delete
+        examSlotRepository.deleteAllInBatch();
+        examDayRepository.deleteAllInBatch();
+
+        saveConfig(systemsPerSession);
+        SlotPlan plan = planSlots(systemsPerSession, sessionsPerDay, labCapacityPerDay);
+
+        // Persist days, then all slots in JDBC batches
+        List<ExamDay> examDays = new ArrayList<>();
+        for (int i = 1; i <= plan.totalDays(); i++) {
+            ExamDay day = new ExamDay();
+            day.setDayNumber(i);
+            day.setExamDate(startDate.plusDays(i - 1));
+            examDays.add(day);
+        }
+        examDays = examDayRepository.saveAll(examDays);
+        insertSlots(examDays, plan.slots());
+
+        // Return summary
+        Map<String, Object> result = new HashMap<>();
+        result.put("totalStudents", plan.totalStudents());
+        result.put("totalDays", plan.totalDays());
+        result.put("systemsPerSession", systemsPerSession);
+        result.put("slotsCreated", (long) plan.slots().size());
+        return result;
+    }
 
+    /**
+     * Regenerate by diffing the new plan against the existing slots instead of rebuilding.
+     * Only changed slots are written, and booked seats are never given up: a slot that
+     * already has bookings keeps at least bookedCount capacity, even if the plan drops it.
+     */
     @Transactional
-    public Map<String, Object> generateSlots(int systemsPerSession, LocalDate startDate) {
-        // Clear old slots (for regeneration)
-        examSlotRepository.deleteAll();
-        examDayRepository.deleteAll();
+    public Map<String, Object> regenerateSlotsIncremental(int systemsPerSession, int sessionsPerDay,
+            int labCapacityPerDay, LocalDate startDate) {
+        saveConfig(systemsPerSession);
+        SlotPlan plan = planSlots(systemsPerSession, sessionsPerDay, labCapacityPerDay);
+
+        // Days: reuse by day number, add missing ones, fix dates if the start moved
+        Map<Integer, ExamDay> daysByNumber = new HashMap<>();
+        for (ExamDay day : examDayRepository.findAll()) {
+            daysByNumber.put(day.getDayNumber(), day);
+        }
+        List<ExamDay> examDays = new ArrayList<>();
+        for (int i = 1; i <= plan.totalDays(); i++) {
+            ExamDay day = daysByNumber.computeIfAbsent(i, n -> new ExamDay());
+            day.setDayNumber(i);
+            day.setExamDate(startDate.plusDays(i - 1));
+            examDays.add(day);
+        }
+        examDays = examDayRepository.saveAll(examDays);
 
-        // Save config
+        Map<Integer, Integer> dayNumberById = new HashMap<>();
+        for (ExamDay day : daysByNumber.values()) {
+            dayNumberById.put(day.getId(), day.getDayNumber());
+        }
+
+        // Existing slots keyed like planned ones
+        Map<String, ExistingSlot> existing = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, exam_day_id, session, department, student_type, gender, max_capacity, booked_count " +
+                        "FROM exam_slots",
+                rs -> {
+                    Integer dayNumber = dayNumberById.get(rs.getInt("exam_day_id"));
+                    ExistingSlot slot = new ExistingSlot(rs.getInt("id"), rs.getInt("max_capacity"),
+                            rs.getInt("booked_count"));
+                    String key = slotKey(dayNumber == null ? -1 : dayNumber - 1, rs.getString("session"),
+                            rs.getString("department"), rs.getString("student_type"), rs.getString("gender"));
+                    existing.put(key, slot);
+                });
+
+        List<PlannedSlot> toInsert = new ArrayList<>();
+        List<int[]> toUpdate = new ArrayList<>(); // [id, newCapacity]
+        List<Integer> toDelete = new ArrayList<>();
+        int unchanged = 0;
+
+        for (PlannedSlot slot : plan.slots()) {
+            ExistingSlot current = existing.remove(
+                    slotKey(slot.dayIndex(), slot.session(), slot.department(), slot.studentType(), slot.gender()));
+            if (current == null) {
+                toInsert.add(slot);
+                continue;
+            }
+            int capacity = Math.max(slot.capacity(), current.bookedCount());
+            if (capacity != current.maxCapacity()) {
+                toUpdate.add(new int[] { current.id(), capacity });
+            } else {
+                unchanged++;
+            }
+        }
+        // Whatever is left is no longer planned
+        for (ExistingSlot current : existing.values()) {
+            if (current.bookedCount() == 0) {
+                toDelete.add(current.id());
+            } else if (current.maxCapacity() != current.bookedCount()) {
+                // Keep the booked seats, close the rest
+                toUpdate.add(new int[] { current.id(), current.bookedCount() });
+            } else {
+                unchanged++;
+            }
+        }
+
+        // booked_count was read without a lock, so the guards are re-checked in SQL against the
+        // current row: bookings committed since the read keep their seats
+        jdbcTemplate.batchUpdate("UPDATE exam_slots SET max_capacity = GREATEST(?, booked_count) WHERE id = ?",
+                toUpdate, 1000, (ps, u) -> {
+                    ps.setInt(1, u[1]);
+                    ps.setInt(2, u[0]);
+                });
+        int deleted = 0;
+        for (int[] counts : jdbcTemplate.batchUpdate("DELETE FROM exam_slots WHERE id = ? AND booked_count = 0",
+                toDelete, 1000, (ps, id) -> ps.setInt(1, id))) {
+            for (int count : counts) {
+                deleted += Math.max(count, 0);
+            }
+        }
+        // Slots booked after the read survive the delete; close their unbooked seats instead
+        jdbcTemplate.batchUpdate("UPDATE exam_slots SET max_capacity = booked_count "
+                + "WHERE id = ? AND max_capacity <> booked_count", toDelete, 1000, (ps, id) -> ps.setInt(1, id));
+        insertSlots(examDays, toInsert);
+
+        // Days past the new end go once nothing refers to them
+        int removedDays = jdbcTemplate.update(
+                "DELETE FROM exam_days d WHERE d.day_number > ? " +
+                        "AND NOT EXISTS (SELECT 1 FROM exam_slots s WHERE s.exam_day_id = d.id)",
+                plan.totalDays());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("totalStudents", plan.totalStudents());
+        result.put("totalDays", plan.totalDays());
+        result.put("systemsPerSession", systemsPerSession);
+        result.put("slotsInserted", toInsert.size());
+        result.put("slotsUpdated", toUpdate.size());
+        result.put("slotsDeleted", deleted);
+        result.put("slotsUnchanged", unchanged);
+        result.put("daysRemoved", removedDays);
+        return result;
+    }
+
+    private record ExistingSlot(int id, int maxCapacity, int bookedCount) {
+    }
+
+    private static String slotKey(int dayIndex, String session, String dept, String studentType, String gender) {
+        return dayIndex + "|" + session + "|" + dept + "|" + studentType + "|" + gender;
+    }
+
+    private void saveConfig(int systemsPerSession) {
         AdminConfig config = new AdminConfig();
         config.setSystemsPerSession(systemsPerSession);
         adminConfigRepository.save(config);
+    }
 
-        // Step 1: Count students
-        List<Student> allStudents = studentRepository.findAll();
-        long totalStudents = allStudents.size();
-
-        // Map students to DAY / HOSTEL
-        // Assuming Student.category maps:
+    private SlotPlan planSlots(int systemsPerSession, int sessionsPerDay, int labCapacityPerDay) {
+        // Step 1: Count students per department and category in one aggregate query
+        // Category maps:
         // DAY -> studentType=DAY, gender=ANY
         // HOSTEL_MALE -> studentType=HOSTEL, gender=M
         // HOSTEL_FEMALE -> studentType=HOSTEL, gender=F
+        Map<String, Integer> dayByDept = new TreeMap<>();
+        Map<String, Map<String, Integer>> hostelByDeptGender = new TreeMap<>();
+        long totalStudents = 0;
 
-        Map<String, List<Student>> dayByDept = new HashMap<>();
-        Map<String, Map<String, List<Student>>> hostelByDeptGender = new HashMap<>();
-
-        for (Student s : allStudents) {
-            String dept = s.getDepartment() != null ? s.getDepartment().getDeptCode() : "UNKNOWN";
-            Student.StudentCategory cat = s.getCategory();
+        for (Object[] row : studentRepository.countByDeptAndCategory()) {
+            String dept = row[0] != null ? (String) row[0] : "UNKNOWN";
+            Student.StudentCategory cat = (Student.StudentCategory) row[1];
+            int count = ((Number) row[2]).intValue();
+            totalStudents += count;
 
             if (cat == Student.StudentCategory.DAY) {
-                dayByDept.computeIfAbsent(dept, k -> new ArrayList<>()).add(s);
+                dayByDept.merge(dept, count, Integer::sum);
             } else {
                 String gender = cat == Student.StudentCategory.HOSTEL_MALE ? "M" : "F";
                 hostelByDeptGender
-                        .computeIfAbsent(dept, k -> new HashMap<>())
-                        .computeIfAbsent(gender, k -> new ArrayList<>())
-                        .add(s);
+                        .computeIfAbsent(dept, k -> new TreeMap<>())
+                        .merge(gender, count, Integer::sum);
             }
         }
 
-        // Step 2: Calculate total exam days
-        int totalDays = (int) Math.ceil((double) totalStudents / systemsPerSession);
-        if (totalDays == 0)
-            totalDays = 1;
-
-        // Create ExamDays
-        List<ExamDay> examDays = new ArrayList<>();
-        for (int i = 1; i <= totalDays; i++) {
-            ExamDay day = new ExamDay();
-            day.setDayNumber(i);
-            day.setExamDate(startDate.plusDays(i - 1));
-            examDays.add(examDayRepository.save(day));
+        // Step 2: One allocation group per (session, dept, studentType, gender)
+        // DAY SCHOLAR: Session = DAY, Gender = ANY; HOSTEL: Session = NIGHT, Gender = M or F
+        List<PlannedSlot> groups = new ArrayList<>();
+        List<AllocationRequest.Demand> demands = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : dayByDept.entrySet()) {
+            groups.add(new PlannedSlot(0, "DAY", entry.getKey(), "DAY", "ANY", 0));
+            demands.add(new AllocationRequest.Demand("DAY|" + entry.getKey(), entry.getValue()));
         }
-
-        // Step 3: Create DAY SCHOLAR slots (Session = DAY, Gender = ANY)
-        for (Map.Entry<String, List<Student>> entry : dayByDept.entrySet()) {
-            String dept = entry.getKey();
-            int deptCount = entry.getValue().size();
-            int perDay = deptCount / totalDays;
-            int remainder = deptCount % totalDays;
-
-            for (ExamDay day : examDays) {
-                int capacity = perDay;
-                if (remainder > 0) {
-                    capacity++;
-                    remainder--;
-                }
-                if (capacity > 0) {
-                    ExamSlot slot = new ExamSlot();
-                    slot.setExamDay(day);
-                    slot.setSession("DAY");
-                    slot.setDepartment(dept);
-                    slot.setStudentType("DAY");
-                    slot.setGender("ANY");
-                    slot.setMaxCapacity(capacity);
-                    slot.setBookedCount(0);
-                    examSlotRepository.save(slot);
-                }
+        for (Map.Entry<String, Map<String, Integer>> deptEntry : hostelByDeptGender.entrySet()) {
+            for (Map.Entry<String, Integer> genderEntry : deptEntry.getValue().entrySet()) {
+                groups.add(new PlannedSlot(0, "NIGHT", deptEntry.getKey(), "HOSTEL", genderEntry.getKey(), 0));
+                demands.add(new AllocationRequest.Demand("HOSTEL|" + deptEntry.getKey() + "|" + genderEntry.getKey(),
+                        genderEntry.getValue()));
             }
         }
 
-        // Step 4: Create HOSTEL slots (Session = NIGHT, Gender = M or F)
-        for (Map.Entry<String, Map<String, List<Student>>> deptEntry : hostelByDeptGender.entrySet()) {
-            String dept = deptEntry.getKey();
-            for (Map.Entry<String, List<Student>> genderEntry : deptEntry.getValue().entrySet()) {
-                String gender = genderEntry.getKey();
-                int genderCount = genderEntry.getValue().size();
-                int perDay = genderCount / totalDays;
-                int remainder = genderCount % totalDays;
-
-                for (ExamDay day : examDays) {
-                    int capacity = perDay;
-                    if (remainder > 0) {
-                        capacity++;
-                        remainder--;
-                    }
-                    if (capacity > 0) {
-                        ExamSlot slot = new ExamSlot();
-                        slot.setExamDay(day);
-                        slot.setSession("NIGHT");
-                        slot.setDepartment(dept);
-                        slot.setStudentType("HOSTEL");
-                        slot.setGender(gender);
-                        slot.setMaxCapacity(capacity);
-                        slot.setBookedCount(0);
-                        examSlotRepository.save(slot);
-                    }
+        // Step 3: Calculate total exam days from the daily lab capacity
+        AllocationRequest sizing = new AllocationRequest(1, systemsPerSession, sessionsPerDay, labCapacityPerDay,
+                demands);
+        int totalDays = AllocationRequest.daysNeeded(totalStudents, sizing.dailyCapacity());
+
+        // Step 4: Spread every group over the days
+        AllocationPlan plan = allocators.active().allocate(new AllocationRequest(totalDays, systemsPerSession,
+                sessionsPerDay, labCapacityPerDay, demands));
+        List<PlannedSlot> planned = new ArrayList<>();
+        for (int g = 0; g < groups.size(); g++) {
+            PlannedSlot group = groups.get(g);
+            for (int day = 0; day < totalDays; day++) {
+                int capacity = plan.seats()[g][day];
+                if (capacity > 0) {
+                    planned.add(new PlannedSlot(day, group.session(), group.department(), group.studentType(),
+                            group.gender(), capacity));
                 }
             }
         }
+        return new SlotPlan(totalStudents, totalDays, planned);
+    }
 
-        // Return summary
-        Map<String, Object> result = new HashMap<>();
-        result.put("totalStudents", totalStudents);
-        result.put("totalDays", totalDays);
-        result.put("systemsPerSession", systemsPerSession);
-        result.put("slotsCreated", examSlotRepository.count());
-        return result;
+    private void insertSlots(List<ExamDay> examDays, List<PlannedSlot> planned) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO exam_slots (exam_day_id, session, department, student_type, gender, " +
+                        "max_capacity, booked_count) VALUES (?, ?, ?, ?, ?, ?, 0)",
+                planned, 1000, (ps, slot) -> {
+                    ps.setInt(1, examDays.get(slot.dayIndex()).getId());
+                    ps.setString(2, slot.session());
+                    ps.setString(3, slot.department());
+                    ps.setString(4, slot.studentType());
+                    ps.setString(5, slot.gender());
+                    ps.setInt(6, slot.capacity());
+                });
     }
 }
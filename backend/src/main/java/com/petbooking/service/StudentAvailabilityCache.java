@@ -0,0 +1,255 @@
+package com.petbooking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.petbooking.entity.ExamQuota;
+import com.petbooking.entity.Student;
+import com.petbooking.event.QuotaChangedEvent;
+import com.petbooking.repository.ExamQuotaRepository;
+import com.petbooking.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-side cache behind GET /api/student/slots.
+ * Holds the pre-serialized availability list per (deptCode, categoryType) and the
+ * (deptCode, categoryType) of each student, so a page refresh is a memory lookup.
+ * Bookings patch cached fill levels in place; admin changes drop the affected entry.
+ *
+ * Misses are loaded outside the maps, one query per key at a time: concurrent misses for
+ * the same key wait for the caller that is loading it. Student profiles expire after
+ * app.availability-cache.profile-ttl-seconds and at most app.availability-cache.max-profiles
+ * are kept; beyond that, profiles are loaded per request until the sweep makes room.
+ */
+@Service
+public class StudentAvailabilityCache {
+
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private ExamQuotaRepository examQuotaRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Entries also expire so the "exam not yet ended" filter follows the calendar
+    @Value("${app.availability-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.availability-cache.profile-ttl-seconds:600}")
+    private long profileTtlSeconds;
+
+    @Value("${app.availability-cache.max-profiles:100000}")
+    private int maxProfiles;
+
+    private final Map<String, CachedProfile> profiles = new ConcurrentHashMap<>();
+    private final Map<String, Availability> entries = new ConcurrentHashMap<>();
+    // Loads in progress, so concurrent misses for a key share one query
+    private final Map<String, CompletableFuture<Availability>> loading = new ConcurrentHashMap<>();
+    // Bumped by admin changes; a load that overlapped one is returned but not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public record StudentProfile(String deptCode, Integer categoryType) {
+    }
+
+    private record Availability(List<Map<String, Object>> items, String json, long loadedAt) {
+    }
+
+    private record CachedProfile(StudentProfile profile, long expiresAt) {
+    }
+
+    public StudentProfile getProfile(String rollNo) {
+        long now = System.currentTimeMillis();
+        CachedProfile cached = profiles.get(rollNo);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.profile();
+        }
+        StudentProfile profile = loadProfile(rollNo);
+        if (profiles.size() < maxProfiles || cached != null) {
+            profiles.put(rollNo, new CachedProfile(profile, now + TimeUnit.SECONDS.toMillis(profileTtlSeconds)));
+        }
+        return profile;
+    }
+
+    /**
+     * Serialized availability list for the student's department and category.
+     */
+    public String getAvailabilityJson(String rollNo) {
+        StudentProfile profile = getProfile(rollNo);
+        String key = key(profile.deptCode(), profile.categoryType());
+
+        Availability cached = entries.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < ttlSeconds * 1000) {
+            return cached.json();
+        }
+        return loadShared(key, profile).json();
+    }
+
+    private Availability loadShared(String key, StudentProfile profile) {
+        CompletableFuture<Availability> mine = new CompletableFuture<>();
+        CompletableFuture<Availability> running = loading.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            long generation = invalidations.get();
+            Availability loaded = load(profile.deptCode(), profile.categoryType(), System.currentTimeMillis());
+            // A fill event that lands during the query is missed until the next fill of that
+            // quota or expiry; bookings check capacity in the database, so only the display lags
+            if (invalidations.get() == generation) {
+                entries.put(key, loaded);
+            }
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    public void evictStudent(String rollNo) {
+        profiles.remove(rollNo);
+    }
+
+    /**
+     * Drop every cached profile, e.g. after a roster upload.
+     */
+    public void evictAllStudents() {
+        profiles.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${app.availability-cache.sweep-ms:60000}")
+    public void sweepExpiredProfiles() {
+        long now = System.currentTimeMillis();
+        profiles.entrySet().removeIf(entry -> entry.getValue().expiresAt() <= now);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQuotaChanged(QuotaChangedEvent event) {
+        switch (event.getKind()) {
+            case ALL -> {
+                invalidations.incrementAndGet();
+                entries.clear();
+            }
+            case UPDATED, REMOVED -> {
+                invalidations.incrementAndGet();
+                entries.remove(key(event.getDeptCode(), event.getCategoryType()));
+            }
+            case FILL -> entries.computeIfPresent(key(event.getDeptCode(), event.getCategoryType()),
+                    (k, cached) -> withFill(cached, event.getQuotaId(), event.getCurrentFill()));
+        }
+    }
+
+    // Fill only grows on the booking path, so taking the max makes out-of-order events harmless
+    private Availability withFill(Availability cached, Long quotaId, int currentFill) {
+        List<Map<String, Object>> items = new ArrayList<>(cached.items().size());
+        boolean changed = false;
+
+        for (Map<String, Object> item : cached.items()) {
+            if (!quotaId.equals(item.get("slotId"))) {
+                items.add(item);
+                continue;
+            }
+            int maxCount = (Integer) item.get("maxCount");
+            int fill = Math.max((Integer) item.get("bookedCount"), currentFill);
+            if (fill == (Integer) item.get("bookedCount")) {
+                items.add(item);
+                continue;
+            }
+            changed = true;
+            if (fill >= maxCount) {
+                continue; // full quotas are not offered to students
+            }
+            items.add(toItem(quotaId, (String) item.get("examDate"), (String) item.get("examName"), maxCount, fill,
+                    (String) item.get("department"), (String) item.get("category")));
+        }
+
+        return changed ? new Availability(items, serialize(items), cached.loadedAt()) : cached;
+    }
+
+    private Availability load(String deptCode, Integer categoryType, long now) {
+        List<ExamQuota> quotas = examQuotaRepository.findAvailableForStudent(deptCode, categoryType);
+        String category = categoryType == 1 ? "Day Scholar" : categoryType == 2 ? "Hostel Boys" : "Hostel Girls";
+
+        List<Map<String, Object>> items = new ArrayList<>(quotas.size());
+        for (ExamQuota q : quotas) {
+            items.add(toItem(q.getId(), q.getExam().getStartingDate().toString(), q.getExam().getExamName(),
+                    q.getMaxCount(), q.getCurrentFill(), deptCode, category));
+        }
+        return new Availability(items, serialize(items), now);
+    }
+
+    private Map<String, Object> toItem(Long quotaId, String examDate, String examName, int maxCount, int bookedCount,
+            String deptCode, String category) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("slotId", quotaId);
+        map.put("examDate", examDate);
+        map.put("examName", examName);
+        map.put("startTime", "09:00");
+        map.put("endTime", "17:00");
+        map.put("maxCount", maxCount);
+        map.put("bookedCount", bookedCount);
+        map.put("available", maxCount - bookedCount);
+        map.put("department", deptCode);
+        map.put("category", category);
+
+        // Add quotas array for frontend compatibility
+        Map<String, Object> quotaInfo = new LinkedHashMap<>();
+        quotaInfo.put("quotaId", quotaId);
+        quotaInfo.put("quotaCapacity", maxCount);
+        quotaInfo.put("bookedCount", bookedCount);
+        quotaInfo.put("department", Map.of("deptCode", deptCode));
+        map.put("quotas", List.of(quotaInfo));
+
+        return map;
+    }
+
+    private StudentProfile loadProfile(String rollNo) {
+        List<Object[]> rows = studentRepository.findDeptCodeAndCategory(rollNo);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Student not found with RollNo: " + rollNo);
+        }
+        String deptCode = (String) rows.get(0)[0];
+        Student.StudentCategory category = (Student.StudentCategory) rows.get(0)[1];
+        return new StudentProfile(deptCode.trim(), categoryTypeOf(category));
+    }
+
+    // Map student category to categoryType: 1=Day, 2=HostelM, 3=HostelF
+    public static Integer categoryTypeOf(Student.StudentCategory category) {
+        if (category == null) {
+            return 1;
+        }
+        return switch (category) {
+            case DAY -> 1;
+            case HOSTEL_MALE -> 2;
+            case HOSTEL_FEMALE -> 3;
+        };
+    }
+
+    private static String key(String deptCode, Integer categoryType) {
+        return deptCode.trim().toUpperCase() + ":" + categoryType;
+    }
+
+    private String serialize(List<Map<String, Object>> items) {
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize availability: " + e.getMessage(), e);
+        }
+    }
+}
@@ -5,15 +5,22 @@ import com.petbooking.entity.Department;
 import com.petbooking.entity.StudentMasterUpload;
 import com.petbooking.repository.DepartmentRepository;
 import com.petbooking.repository.StudentMasterUploadRepository;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 public class StudentMasterUploadService {
@@ -24,124 +31,324 @@ public class StudentMasterUploadService {
     @Autowired
     private DepartmentRepository departmentRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StudentAvailabilityCache availabilityCache;
+
+    // student.upload.rows{result=parsed|inserted|rejected}, student.upload.stage{stage=validate|insert}
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Rows validated and inserted per round trip
+    @Value("${app.upload.batch-size:1000}")
+    private int batchSize;
+
+    // Column sizes of student_master_upload (schema.sql), the table these rows are inserted into
+    private static final int MAX_ROLL_NO = 20;
+    private static final int MAX_NAME = 255;
+    private static final int MAX_EMAIL = 120;
+    private static final int MAX_DEPT_CODE = 10;
+
     public StudentUploadResponse processExcelFile(MultipartFile file, Long adminId) throws IOException {
-        InputStream inputStream = file.getInputStream();
-        Workbook workbook = new XSSFWorkbook(inputStream);
-        Sheet sheet = workbook.getSheetAt(0);
+        // Spool to disk so the SAX reader can open the zip without holding it in memory
+        Path tempFile = Files.createTempFile("student-master-", ".xlsx");
+        try {
+            file.transferTo(tempFile);
+            return processExcelFile(tempFile, adminId);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    public StudentUploadResponse processExcelFile(Path file, Long adminId) throws IOException {
+        UploadProgress progress = newProgress();
+        parse(file, progress, chunk -> insert(validate(chunk, adminId, progress), progress));
+        availabilityCache.evictAllStudents();
+        return progress.toResponse();
+    }
+
+    record RosterRow(int rowNum, String[] cells) {
+    }
+
+    record ValidatedChunk(List<StudentMasterUpload> accepted, List<Integer> rowNums) {
+    }
 
-        int totalRows = 0;
-        int insertedCount = 0;
-        int skippedCount = 0;
-        List<String> errors = new ArrayList<>();
-        Set<String> deptCodesProcessed = new HashSet<>();
+    /**
+     * Counters and per-row errors for one upload. Counters and errors may be updated from
+     * different pipeline stages; the dedupe sets are only touched by the validate stage.
+     */
+    public static class UploadProgress {
+        private final AtomicInteger rowsParsed = new AtomicInteger();
+        private final AtomicInteger rowsInserted = new AtomicInteger();
+        private final AtomicInteger rowsRejected = new AtomicInteger();
+        // Keyed by row number so the final list stays in sheet order
+        private final Map<Integer, String> errors = new ConcurrentSkipListMap<>();
+        // Known department codes (upper case), seeded from the departments table
+        private final Set<String> deptCodes;
+        // Roll numbers / emails accepted earlier in this file
+        private final Set<String> seenRollNos = new HashSet<>();
+        private final Set<String> seenEmails = new HashSet<>();
 
-        Iterator<Row> rowIterator = sheet.iterator();
+        UploadProgress(Set<String> deptCodes) {
+            this.deptCodes = deptCodes;
+        }
 
-        // Skip header
-        if (rowIterator.hasNext()) {
-            rowIterator.next();
+        public int getRowsParsed() {
+            return rowsParsed.get();
         }
 
-        while (rowIterator.hasNext()) {
-            Row row = rowIterator.next();
-            totalRows++;
-            int rowNum = row.getRowNum() + 1;
+        public int getRowsInserted() {
+            return rowsInserted.get();
+        }
 
-            try {
-                // Excel columns: Name(0), RollNo(1), EmailID(2), Gender(3), Department(4),
-                // Hosteller/Dayscholar(5)
-                String name = getCellValue(row, 0);
-                String rollNo = getCellValue(row, 1);
-                String email = getCellValue(row, 2);
-                String gender = getCellValue(row, 3);
-                String deptCode = getCellValue(row, 4);
-                String studentTypeRaw = getCellValue(row, 5);
-
-                if (isEmpty(rollNo) || isEmpty(name) || isEmpty(email) || isEmpty(deptCode)) {
-                    errors.add("Row " + rowNum + ": Missing required fields (RollNo, Name, Email, Dept)");
-                    skippedCount++;
-                    continue;
-                }
+        public int getRowsRejected() {
+            return rowsRejected.get();
+        }
 
-                // Auto-create department if not exists
-                if (!deptCodesProcessed.contains(deptCode.toUpperCase())) {
-                    if (!departmentRepository.existsByDeptCode(deptCode)) {
-                        Department newDept = new Department();
-                        newDept.setDeptCode(deptCode.toUpperCase());
-                        departmentRepository.save(newDept);
-                    }
-                    deptCodesProcessed.add(deptCode.toUpperCase());
-                }
+        void reject(int rowNum, String message) {
+            errors.put(rowNum, "Row " + rowNum + ": " + message);
+            rowsRejected.incrementAndGet();
+        }
 
-                // Map "Hosteller" -> "HOSTEL", "Dayscholar" -> "DAY"
-                String studentType;
-                if ("HOSTELLER".equalsIgnoreCase(studentTypeRaw) || "HOSTEL".equalsIgnoreCase(studentTypeRaw)) {
-                    studentType = "HOSTEL";
-                } else if ("DAYSCHOLAR".equalsIgnoreCase(studentTypeRaw) || "DAY".equalsIgnoreCase(studentTypeRaw)) {
-                    studentType = "DAY";
-                } else {
-                    errors.add("Row " + rowNum + ": Invalid Student Type '" + studentTypeRaw
-                            + "' (must be Hosteller/Hostel or Dayscholar/Day)");
-                    skippedCount++;
-                    continue;
-                }
+        public StudentUploadResponse toResponse() {
+            return new StudentUploadResponse(rowsParsed.get(), rowsInserted.get(), rowsRejected.get(),
+                    new ArrayList<>(errors.values()));
+        }
+    }
 
-                if ("HOSTEL".equals(studentType)) {
-                    if (!"MALE".equalsIgnoreCase(gender) && !"FEMALE".equalsIgnoreCase(gender)) {
-                        errors.add("Row " + rowNum + ": Invalid Gender for Hosteller (must be MALE or FEMALE)");
-                        skippedCount++;
-                        continue;
-                    }
-                }
+    public UploadProgress newProgress() {
+        Set<String> codes = new HashSet<>();
+        for (Department d : departmentRepository.findAll()) {
+            codes.add(d.getDeptCode().trim().toUpperCase());
+        }
+        return new UploadProgress(codes);
+    }
 
-                // Check duplicates (in this upload table)
-                if (repository.existsByRollNo(rollNo) || repository.existsByEmail(email)) {
-                    errors.add("Row " + rowNum + ": Duplicate RollNo or Email");
-                    skippedCount++;
-                    continue;
+    /**
+     * Parse stage: stream the sheet and hand rows on in chunks of batchSize.
+     */
+    void parse(Path file, UploadProgress progress, Consumer<List<RosterRow>> chunkSink) throws IOException {
+        List<RosterRow> chunk = new ArrayList<>(batchSize);
+
+        // Excel columns: Name(0), RollNo(1), EmailID(2), Gender(3), Department(4),
+        // Hosteller/Dayscholar(5)
+        new RosterSheetReader(6).read(file, (rowNum, cells) -> {
+            chunk.add(new RosterRow(rowNum, cells));
+            progress.rowsParsed.incrementAndGet();
+            if (chunk.size() >= batchSize) {
+                countRows("parsed", chunk.size());
+                chunkSink.accept(new ArrayList<>(chunk));
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            countRows("parsed", chunk.size());
+            chunkSink.accept(chunk);
+        }
+    }
+
+    /**
+     * Validate stage: per-row checks, then two bulk duplicate queries for the whole chunk.
+     * Must be called for chunks in sheet order from a single thread.
+     */
+    ValidatedChunk validate(List<RosterRow> rows, Long adminId, UploadProgress progress) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // Pass 1: per-row checks that need no database access
+        List<RosterRow> candidates = new ArrayList<>(rows.size());
+        Set<String> newDeptCodes = new LinkedHashSet<>();
+        for (RosterRow row : rows) {
+            String[] c = row.cells();
+            if (isEmpty(c[1]) || isEmpty(c[0]) || isEmpty(c[2]) || isEmpty(c[4])) {
+                progress.reject(row.rowNum(), "Missing required fields (RollNo, Name, Email, Dept)");
+                continue;
+            }
+            String tooLong = tooLongField(c);
+            if (tooLong != null) {
+                progress.reject(row.rowNum(), tooLong);
+                continue;
+            }
+            // Auto-create department if not exists
+            if (!progress.deptCodes.contains(c[4].toUpperCase())) {
+                newDeptCodes.add(c[4].toUpperCase());
+                progress.deptCodes.add(c[4].toUpperCase());
+            }
+            candidates.add(row);
+        }
+        Set<String> failedDeptCodes = createDepartments(newDeptCodes);
+        if (!failedDeptCodes.isEmpty()) {
+            progress.deptCodes.removeAll(failedDeptCodes);
+            candidates.removeIf(row -> {
+                String code = row.cells()[4].toUpperCase();
+                if (failedDeptCodes.contains(code)) {
+                    progress.reject(row.rowNum(), "Could not create department " + code);
+                    return true;
                 }
+                return false;
+            });
+        }
+
+        // Pass 2: one query each for roll numbers and emails already in the table
+        Set<String> takenRollNos = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        if (!candidates.isEmpty()) {
+            takenRollNos.addAll(repository.findExistingRollNos(candidates.stream().map(r -> r.cells()[1]).toList()));
+            takenEmails.addAll(repository.findExistingEmails(candidates.stream().map(r -> r.cells()[2]).toList()));
+        }
+
+        List<StudentMasterUpload> accepted = new ArrayList<>(candidates.size());
+        List<Integer> acceptedRowNums = new ArrayList<>(candidates.size());
+        for (RosterRow row : candidates) {
+            StudentMasterUpload entity = validateRow(row, adminId, progress, takenRollNos, takenEmails);
+            if (entity != null) {
+                accepted.add(entity);
+                acceptedRowNums.add(row.rowNum());
+            }
+        }
+        countRows("rejected", rows.size() - accepted.size());
+        sample.stop(meterRegistry.timer("student.upload.stage", "stage", "validate"));
+        return new ValidatedChunk(accepted, acceptedRowNums);
+    }
 
-                StudentMasterUpload entity = new StudentMasterUpload();
-                entity.setRollNo(rollNo);
-                entity.setName(name);
-                entity.setEmail(email);
-                entity.setDeptCode(deptCode.toUpperCase());
-                entity.setStudentType(studentType.toUpperCase());
-                entity.setGender(gender != null ? gender.toUpperCase() : "MALE");
-                if (isEmpty(gender) && "DAY".equalsIgnoreCase(studentType)) {
-                    if (isEmpty(gender)) {
-                        errors.add("Row " + rowNum + ": Gender required");
-                        skippedCount++;
-                        continue;
-                    }
+    /**
+     * Insert stage: the accepted rows of one chunk as a single JDBC batch. If the batch
+     * fails, the chunk is retried row by row so only the offending rows are rejected.
+     */
+    void insert(ValidatedChunk chunk, UploadProgress progress) {
+        if (chunk.accepted().isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            insertBatch(chunk.accepted());
+            progress.rowsInserted.addAndGet(chunk.accepted().size());
+            countRows("inserted", chunk.accepted().size());
+        } catch (Exception batchFailure) {
+            for (int i = 0; i < chunk.accepted().size(); i++) {
+                try {
+                    insertBatch(List.of(chunk.accepted().get(i)));
+                    progress.rowsInserted.incrementAndGet();
+                    countRows("inserted", 1);
+                } catch (Exception e) {
+                    progress.reject(chunk.rowNums().get(i), "Error processing - " + e.getMessage());
+                    countRows("rejected", 1);
                 }
+            }
+        } finally {
+            sample.stop(meterRegistry.timer("student.upload.stage", "stage", "insert"));
+        }
+    }
+
+    private String tooLongField(String[] c) {
+        if (c[1].length() > MAX_ROLL_NO) {
+            return "RollNo longer than " + MAX_ROLL_NO + " characters";
+        }
+        if (c[0].length() > MAX_NAME) {
+            return "Name longer than " + MAX_NAME + " characters";
+        }
+        if (c[2].length() > MAX_EMAIL) {
+            return "Email longer than " + MAX_EMAIL + " characters";
+        }
+        if (c[4].length() > MAX_DEPT_CODE) {
+            return "Department longer than " + MAX_DEPT_CODE + " characters";
+        }
+        return null;
+    }
 
-                entity.setUploadedByAdminId(adminId);
-                repository.save(entity);
-                insertedCount++;
+    private StudentMasterUpload validateRow(RosterRow row, Long adminId, UploadProgress state,
+            Set<String> takenRollNos, Set<String> takenEmails) {
+        int rowNum = row.rowNum();
+        String name = row.cells()[0];
+        String rollNo = row.cells()[1];
+        String email = row.cells()[2];
+        String gender = row.cells()[3];
+        String deptCode = row.cells()[4];
+        String studentTypeRaw = row.cells()[5];
 
-            } catch (Exception e) {
-                errors.add("Row " + rowNum + ": Error processing - " + e.getMessage());
-                skippedCount++;
+        // Map "Hosteller" -> "HOSTEL", "Dayscholar" -> "DAY"
+        String studentType;
+        if ("HOSTELLER".equalsIgnoreCase(studentTypeRaw) || "HOSTEL".equalsIgnoreCase(studentTypeRaw)) {
+            studentType = "HOSTEL";
+        } else if ("DAYSCHOLAR".equalsIgnoreCase(studentTypeRaw) || "DAY".equalsIgnoreCase(studentTypeRaw)) {
+            studentType = "DAY";
+        } else {
+            state.reject(rowNum, "Invalid Student Type '" + studentTypeRaw
+                    + "' (must be Hosteller/Hostel or Dayscholar/Day)");
+            return null;
+        }
+
+        if ("HOSTEL".equals(studentType)) {
+            if (!"MALE".equalsIgnoreCase(gender) && !"FEMALE".equalsIgnoreCase(gender)) {
+                state.reject(rowNum, "Invalid Gender for Hosteller (must be MALE or FEMALE)");
+                return null;
             }
         }
-        workbook.close();
 
-        return new StudentUploadResponse(totalRows, insertedCount, skippedCount, errors);
+        // Check duplicates (in this upload table and earlier in this file)
+        if (takenRollNos.contains(rollNo) || takenEmails.contains(email)
+                || state.seenRollNos.contains(rollNo) || state.seenEmails.contains(email)) {
+            state.reject(rowNum, "Duplicate RollNo or Email");
+            return null;
+        }
+
+        if (isEmpty(gender) && "DAY".equalsIgnoreCase(studentType)) {
+            state.reject(rowNum, "Gender required");
+            return null;
+        }
+
+        StudentMasterUpload entity = new StudentMasterUpload();
+        entity.setRollNo(rollNo);
+        entity.setName(name);
+        entity.setEmail(email);
+        entity.setDeptCode(deptCode.toUpperCase());
+        entity.setStudentType(studentType.toUpperCase());
+        entity.setGender(gender.toUpperCase());
+        entity.setUploadedByAdminId(adminId);
+
+        state.seenRollNos.add(rollNo);
+        state.seenEmails.add(email);
+        return entity;
     }
 
-    private String getCellValue(Row row, int index) {
-        Cell cell = row.getCell(index, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-        if (cell == null)
-            return "";
-        try {
-            return switch (cell.getCellType()) {
-                case STRING -> cell.getStringCellValue().trim();
-                case NUMERIC -> String.valueOf((long) cell.getNumericCellValue()); // Handle numeric roll nos
-                default -> "";
-            };
-        } catch (Exception e) {
-            return "";
+    // One multi-row round trip per chunk (pgjdbc rewrites the batch when reWriteBatchedInserts=true)
+    private void insertBatch(List<StudentMasterUpload> rows) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                "INSERT INTO student_master_upload "
+                        + "(roll_no, name, email, dept_code, student_type, gender, uploaded_by_admin_id) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                rows, rows.size(), (ps, s) -> {
+                    ps.setString(1, s.getRollNo());
+                    ps.setString(2, s.getName());
+                    ps.setString(3, s.getEmail());
+                    ps.setString(4, s.getDeptCode());
+                    ps.setString(5, s.getStudentType());
+                    ps.setString(6, s.getGender());
+                    ps.setObject(7, s.getUploadedByAdminId());
+                }));
+    }
+
+    // Saved one by one so a failing department only rejects its own rows; returns the codes that failed
+    private Set<String> createDepartments(Set<String> deptCodes) {
+        Set<String> failed = new HashSet<>();
+        for (String code : deptCodes) {
+            Department dept = new Department();
+            dept.setDeptCode(code);
+            try {
+                departmentRepository.save(dept);
+            } catch (Exception e) {
+                failed.add(code);
+            }
+        }
+        return failed;
+    }
+
+    private void countRows(String result, int rows) {
+        if (rows > 0) {
+            meterRegistry.counter("student.upload.rows", "result", result).increment(rows);
         }
     }
 
@@ -0,0 +1,246 @@
+package com.petbooking.service;
+
+import com.petbooking.dto.StudentUploadJobStatus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Background roster imports for POST /api/admin/student-master/upload-jobs.
+ * Each job runs as three stages (parse -> validate -> batch insert) connected by small
+ * bounded queues, so a slow database applies back-pressure to the parser instead of
+ * letting parsed rows pile up in memory. Progress is readable while the job runs.
+ */
+@Service
+public class StudentUploadJobService {
+
+    @Autowired
+    private StudentMasterUploadService uploadService;
+
+    @Autowired
+    private StudentAvailabilityCache availabilityCache;
+
+    @Value("${app.upload.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    // Chunks buffered between two stages
+    @Value("${app.upload.jobs.stage-queue-capacity:4}")
+    private int stageQueueCapacity;
+
+    // Runs one coordinator per job; excess jobs wait in a bounded queue
+    private final ThreadPoolExecutor jobRunner;
+    // Three stage threads per running job
+    private final ExecutorService stagePool;
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+
+    // Identity markers for end of input between stages
+    private static final List<StudentMasterUploadService.RosterRow> END_OF_ROWS = new ArrayList<>(0);
+    private static final StudentMasterUploadService.ValidatedChunk END_OF_CHUNKS =
+            new StudentMasterUploadService.ValidatedChunk(List.of(), List.of());
+
+    public StudentUploadJobService(@Value("${app.upload.jobs.max-concurrent:2}") int maxConcurrent,
+            @Value("${app.upload.jobs.max-queued:10}") int maxQueued) {
+        this.jobRunner = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued), daemonThreads("upload-job"));
+        this.stagePool = Executors.newFixedThreadPool(maxConcurrent * 3, daemonThreads("upload-stage"));
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static class UploadJob {
+        final String id = UUID.randomUUID().toString();
+        final String fileName;
+        final Path file;
+        final Long adminId;
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        volatile String status = "QUEUED";
+        volatile StudentMasterUploadService.UploadProgress progress;
+        volatile long startedNanos;
+        volatile long finishedNanos;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile String error;
+
+        UploadJob(String fileName, Path file, Long adminId) {
+            this.fileName = fileName;
+            this.file = file;
+            this.adminId = adminId;
+        }
+    }
+
+    /**
+     * Spool the upload to disk and queue it. Returns as soon as the file is on disk.
+     */
+    public StudentUploadJobStatus submit(MultipartFile file, Long adminId) throws IOException {
+        Path tempFile = Files.createTempFile("student-master-", ".xlsx");
+        try {
+            file.transferTo(tempFile);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        UploadJob job = new UploadJob(file.getOriginalFilename(), tempFile, adminId);
+        jobs.put(job.id, job);
+        try {
+            jobRunner.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(tempFile);
+            throw new RuntimeException("Too many uploads in progress. Please try again shortly.");
+        }
+        return toStatus(job);
+    }
+
+    /**
+     * Status of a job, or empty if the id is unknown or the job has aged out.
+     */
+    public java.util.Optional<StudentUploadJobStatus> getStatus(String jobId) {
+        return java.util.Optional.ofNullable(jobs.get(jobId)).map(this::toStatus);
+    }
+
+    private void run(UploadJob job) {
+        job.startedNanos = System.nanoTime();
+        job.startedAt = LocalDateTime.now();
+        job.status = "RUNNING";
+        try {
+            job.progress = uploadService.newProgress();
+            runStages(job);
+            availabilityCache.evictAllStudents();
+            job.status = "COMPLETED";
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.status = "FAILED";
+        } finally {
+            job.finishedNanos = System.nanoTime();
+            job.finishedAt = LocalDateTime.now();
+            try {
+                Files.deleteIfExists(job.file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void runStages(UploadJob job) throws Exception {
+        StudentMasterUploadService.UploadProgress progress = job.progress;
+        BlockingQueue<List<StudentMasterUploadService.RosterRow>> parsed = new ArrayBlockingQueue<>(stageQueueCapacity);
+        BlockingQueue<StudentMasterUploadService.ValidatedChunk> validated = new ArrayBlockingQueue<>(stageQueueCapacity);
+
+        CompletionService<Void> stages = new ExecutorCompletionService<>(stagePool);
+        List<Future<Void>> futures = new ArrayList<>(3);
+
+        // ========== PARSE ==========
+        futures.add(stages.submit(() -> {
+            uploadService.parse(job.file, progress, chunk -> put(parsed, chunk));
+            put(parsed, END_OF_ROWS);
+            return null;
+        }));
+
+        // ========== VALIDATE ==========
+        // Single thread: duplicate checks rely on seeing chunks in sheet order
+        futures.add(stages.submit(() -> {
+            List<StudentMasterUploadService.RosterRow> chunk;
+            while ((chunk = parsed.take()) != END_OF_ROWS) {
+                put(validated, uploadService.validate(chunk, job.adminId, progress));
+            }
+            put(validated, END_OF_CHUNKS);
+            return null;
+        }));
+
+        // ========== INSERT ==========
+        futures.add(stages.submit(() -> {
+            StudentMasterUploadService.ValidatedChunk chunk;
+            while ((chunk = validated.take()) != END_OF_CHUNKS) {
+                uploadService.insert(chunk, progress);
+            }
+            return null;
+        }));
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                stages.take().get();
+            }
+        } catch (ExecutionException e) {
+            // One stage failed; the others may be blocked on a queue, so interrupt them
+            futures.forEach(f -> f.cancel(true));
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ex ? ex : new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Upload interrupted");
+        }
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Upload cancelled");
+        }
+    }
+
+    private StudentUploadJobStatus toStatus(UploadJob job) {
+        StudentUploadJobStatus status = new StudentUploadJobStatus();
+        status.setJobId(job.id);
+        status.setFileName(job.fileName);
+        status.setStatus(job.status);
+        status.setSubmittedAt(job.submittedAt);
+        status.setStartedAt(job.startedAt);
+        status.setFinishedAt(job.finishedAt);
+        status.setError(job.error);
+
+        StudentMasterUploadService.UploadProgress progress = job.progress;
+        if (progress != null) {
+            status.setRowsParsed(progress.getRowsParsed());
+            status.setRowsInserted(progress.getRowsInserted());
+            status.setRowsRejected(progress.getRowsRejected());
+
+            long end = job.finishedNanos != 0 ? job.finishedNanos : System.nanoTime();
+            double seconds = (end - job.startedNanos) / 1_000_000_000.0;
+            if (seconds > 0) {
+                status.setRowsPerSecond(Math.round(progress.getRowsParsed() / seconds * 10) / 10.0);
+            }
+            if ("COMPLETED".equals(job.status)) {
+                status.setResult(progress.toResponse());
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Drop finished jobs once they are older than the retention window.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMinutes(retentionMinutes));
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobRunner.shutdownNow();
+        stagePool.shutdownNow();
+    }
+}
@@ -0,0 +1,64 @@
+package com.petbooking.service;
+
+import com.petbooking.repository.DepartmentRepository;
+import com.petbooking.repository.StudentMasterUploadRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class StudentMasterUploadServiceTest {
+
+    @Mock
+    private StudentMasterUploadRepository repository;
+
+    @Mock
+    private DepartmentRepository departmentRepository;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private StudentMasterUploadService service;
+
+    @Test
+    void acceptsNameLongerThanStudentsColumn() {
+        // students.name is VARCHAR(35) in the entity, but uploads go to student_master_upload
+        String name = "Aravindakshan Venkatasubramanian Ramachandran Iyer";
+        StudentMasterUploadService.UploadProgress progress = new StudentMasterUploadService.UploadProgress(
+                new HashSet<>(Set.of("CSE")));
+        StudentMasterUploadService.RosterRow row = new StudentMasterUploadService.RosterRow(2,
+                new String[] { name, "21CS001", "a.iyer@example.edu", "MALE", "CSE", "Hosteller" });
+
+        StudentMasterUploadService.ValidatedChunk chunk = service.validate(List.of(row), 1L, progress);
+
+        assertEquals(1, chunk.accepted().size());
+        assertEquals(name, chunk.accepted().get(0).getName());
+        assertEquals(0, progress.getRowsRejected());
+    }
+
+    @Test
+    void rejectsNameLongerThanUploadColumn() {
+        StudentMasterUploadService.UploadProgress progress = new StudentMasterUploadService.UploadProgress(
+                new HashSet<>(Set.of("CSE")));
+        StudentMasterUploadService.RosterRow row = new StudentMasterUploadService.RosterRow(2,
+                new String[] { "x".repeat(256), "21CS002", "x@example.edu", "MALE", "CSE", "Hosteller" });
+
+        StudentMasterUploadService.ValidatedChunk chunk = service.validate(List.of(row), 1L, progress);
+
+        assertTrue(chunk.accepted().isEmpty());
+        assertEquals(1, progress.getRowsRejected());
+    }
+}
@@ -479,6 +479,7 @@ function StudentDataManager() {
     const [departments, setDepartments] = useState([]);
     const [uploading, setUploading] = useState(false);
     const [uploadResult, setUploadResult] = useState(null);
+    const [uploadProgress, setUploadProgress] = useState(null);
     const [editingStudent, setEditingStudent] = useState(null);
     const [editForm, setEditForm] = useState({ name: "", email: "", deptId: "", category: "DAY" });
     const [sortKey, setSortKey] = useState("rollNo");
@@ -512,16 +513,27 @@ function StudentDataManager() {
         setUploadResult(null);
 
         try {
-            const res = await axios.post("/api/admin/student-master/upload", formData, {
+            const res = await axios.post("/api/admin/student-master/upload-jobs", formData, {
                 headers: { "Content-Type": "multipart/form-data" }
             });
-            setUploadResult(res.data);
+            // Poll the background job until it finishes
+            let job = res.data;
+            while (job.status === "QUEUED" || job.status === "RUNNING") {
+                setUploadProgress(job);
+                await new Promise(resolve => setTimeout(resolve, 1000));
+                job = (await axios.get(`/api/admin/student-master/upload-jobs/${job.jobId}`)).data;
+            }
+            if (job.status === "FAILED") {
+                throw new Error(job.error || "Upload job failed");
+            }
+            setUploadResult(job.result);
             loadStudents(); // Reload students after upload
             e.target.value = null; // reset input
         } catch (error) {
             alert("Upload failed: " + (error.response?.data || error.message));
         } finally {
             setUploading(false);
+            setUploadProgress(null);
         }
     };
 
@@ -629,6 +641,17 @@ function StudentDataManager() {
                 </div>
             )}
 
+            {uploadProgress && (
+                <div className="bg-white border rounded-xl p-4 shadow-sm text-sm flex items-center gap-3">
+                    <Loader2 className="animate-spin h-4 w-4" />
+                    <span className="font-bold">{uploadProgress.status === "QUEUED" ? "Queued..." : "Importing..."}</span>
+                    <span>{uploadProgress.rowsParsed} parsed</span>
+                    <span className="text-green-700">{uploadProgress.rowsInserted} inserted</span>
+                    <span className="text-orange-700">{uploadProgress.rowsRejected} skipped</span>
+                    <span className="text-gray-500">{uploadProgress.rowsPerSecond} rows/s</span>
+                </div>
+            )}
+
             {uploadResult && (
                 <div className="bg-white border rounded-xl p-6 shadow-sm animate-in fade-in slide-in-from-top-2">
                     <div className="flex justify-between items-center mb-4">